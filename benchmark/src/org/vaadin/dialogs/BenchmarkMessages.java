@@ -0,0 +1,53 @@
+package org.vaadin.dialogs;
+
+/**
+ * Message fixtures shared by the benchmarks.
+ *
+ * The kinds cover the typical dialog contents: a short question, a long
+ * single paragraph, a multi-line listing of affected records and a HTML
+ * formatted message.
+ *
+ */
+final class BenchmarkMessages {
+
+    static final String SHORT = "short";
+    static final String LONG = "long";
+    static final String MULTILINE = "multiline";
+    static final String HTML = "html";
+
+    private BenchmarkMessages() {
+    }
+
+    static String get(final String kind) {
+        if (SHORT.equals(kind)) {
+            return "Are You sure?";
+        } else if (LONG.equals(kind)) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 20; i++) {
+                sb.append("This operation cannot be undone & all related data <will> be removed. ");
+            }
+            return sb.toString();
+        } else if (MULTILINE.equals(kind)) {
+            StringBuilder sb = new StringBuilder(
+                    "The following records will be deleted:\n");
+            for (int i = 0; i < 100; i++) {
+                sb.append("Record #").append(i).append(" \"Customer ")
+                        .append(i).append("\"\n");
+            }
+            return sb.toString();
+        } else if (HTML.equals(kind)) {
+            StringBuilder sb = new StringBuilder(
+                    "<b>The following records will be deleted:</b><ul>");
+            for (int i = 0; i < 20; i++) {
+                sb.append("<li>Record <i>#").append(i).append("</i></li>");
+            }
+            return sb.append("</ul>").toString();
+        }
+        throw new IllegalArgumentException("Unknown message kind: " + kind);
+    }
+
+    static int contentMode(final String kind) {
+        return HTML.equals(kind) ? ConfirmDialog.CONTENT_HTML
+                : ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES;
+    }
+}
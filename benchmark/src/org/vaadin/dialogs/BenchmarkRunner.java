@@ -0,0 +1,25 @@
+package org.vaadin.dialogs;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar.
+ *
+ * Accepts the normal JMH command line options, but always enables the GC
+ * profiler so that the allocation rate (gc.alloc.rate.norm) is reported with
+ * the throughput of each benchmark.
+ *
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
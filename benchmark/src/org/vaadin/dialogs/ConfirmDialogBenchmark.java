@@ -0,0 +1,75 @@
+package org.vaadin.dialogs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Server side cost of creating and configuring a confirm dialog.
+ *
+ * Run through {@link BenchmarkRunner} to get the allocation rate reported
+ * alongside the throughput.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfirmDialogBenchmark {
+
+    @Param({ BenchmarkMessages.SHORT, BenchmarkMessages.LONG,
+            BenchmarkMessages.MULTILINE, BenchmarkMessages.HTML })
+    public String kind;
+
+    private DefaultConfirmDialogFactory factory;
+    private ConfirmDialog dialog;
+    private String message;
+    private int contentMode;
+
+    @Setup
+    public void setup() {
+        factory = new DefaultConfirmDialogFactory();
+        message = BenchmarkMessages.get(kind);
+        contentMode = BenchmarkMessages.contentMode(kind);
+        dialog = factory.create(null, message, null, null);
+    }
+
+    @Benchmark
+    public ConfirmDialog create() {
+        return factory.create(null, message, null, null);
+    }
+
+    @Benchmark
+    public ConfirmDialog setMessage() {
+        dialog.setMessage(message);
+        return dialog;
+    }
+
+    @Benchmark
+    public ConfirmDialog setContentMode() {
+        dialog.setContentMode(contentMode);
+        return dialog;
+    }
+
+    @Benchmark
+    public String formatDialogMessage() {
+        return dialog.formatDialogMessage(message);
+    }
+
+    @Benchmark
+    public double[] getDialogDimensions() {
+        return factory.getDialogDimensions(message, contentMode);
+    }
+}
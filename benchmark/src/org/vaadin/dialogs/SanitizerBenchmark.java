@@ -0,0 +1,169 @@
+package org.vaadin.dialogs;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+/**
+ * Streaming {@link HtmlSanitizer} compared with sanitizing a DOM.
+ *
+ * The DOM sanitizer parses the message with the JDK XML parser, removes the
+ * elements and attributes outside the same allowlist and serializes the
+ * tree again. The messages are well formed so that both can handle them.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SanitizerBenchmark {
+
+    static final String UNTRUSTED = "untrusted";
+
+    @Param({ BenchmarkMessages.HTML, UNTRUSTED })
+    public String kind;
+
+    private String message;
+    private DomSanitizer dom;
+
+    @Setup
+    public void setup() throws Exception {
+        if (UNTRUSTED.equals(kind)) {
+            StringBuilder sb = new StringBuilder(
+                    "<div onclick=\"steal()\"><b>Delete these records?</b>"
+                            + "<script>alert('x')</script><ul>");
+            for (int i = 0; i < 20; i++) {
+                sb.append("<li style=\"color:red\"><a href=\"javascript:x()\""
+                        + " title=\"Record\">Record <font>#").append(i)
+                        .append("</font></a></li>");
+            }
+            message = sb.append("</ul></div>").toString();
+        } else {
+            message = BenchmarkMessages.get(kind);
+        }
+        dom = new DomSanitizer();
+    }
+
+    @Benchmark
+    public StringBuilder streaming() {
+        return HtmlSanitizer.DEFAULT.sanitize(message, new StringBuilder(
+                message.length() + 16));
+    }
+
+    @Benchmark
+    public String streamingCached() {
+        return HtmlSanitizer.DEFAULT.sanitize(message);
+    }
+
+    @Benchmark
+    public String dom() throws Exception {
+        return dom.sanitize(message);
+    }
+
+    /**
+     * DOM based sanitizer with the default allowlist.
+     */
+    static final class DomSanitizer {
+
+        private static final Set<String> ELEMENTS = new HashSet<String>(
+                Arrays.asList(HtmlSanitizer.DEFAULT_ALLOWLIST.replace(
+                        "[href|title]", "").split(",")));
+        private static final Set<String> DROPPED = new HashSet<String>(
+                Arrays.asList("script", "style"));
+
+        private final DocumentBuilder builder;
+        private final Transformer transformer;
+
+        DomSanitizer() throws Exception {
+            builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION,
+                    "yes");
+        }
+
+        String sanitize(final String html) throws Exception {
+            Document doc = builder.parse(new InputSource(new StringReader(
+                    "<body>" + html + "</body>")));
+            Element body = doc.getDocumentElement();
+            clean(body);
+            StringWriter out = new StringWriter();
+            for (Node n = body.getFirstChild(); n != null; n = n
+                    .getNextSibling()) {
+                transformer.transform(new DOMSource(n), new StreamResult(out));
+            }
+            return out.toString();
+        }
+
+        private static void clean(final Node parent) {
+            Node n = parent.getFirstChild();
+            while (n != null) {
+                Node next = n.getNextSibling();
+                if (n.getNodeType() == Node.ELEMENT_NODE) {
+                    String name = n.getNodeName().toLowerCase();
+                    clean(n);
+                    if (!ELEMENTS.contains(name)) {
+                        // Keep the content of removed elements
+                        while (!DROPPED.contains(name)
+                                && n.getFirstChild() != null) {
+                            parent.insertBefore(n.getFirstChild(), n);
+                        }
+                        parent.removeChild(n);
+                    } else {
+                        cleanAttributes((Element) n, name);
+                    }
+                } else if (n.getNodeType() == Node.COMMENT_NODE) {
+                    parent.removeChild(n);
+                }
+                n = next;
+            }
+        }
+
+        private static void cleanAttributes(final Element e, final String name) {
+            NamedNodeMap attributes = e.getAttributes();
+            for (int i = attributes.getLength() - 1; i >= 0; i--) {
+                String a = attributes.item(i).getNodeName().toLowerCase();
+                String value = attributes.item(i).getNodeValue().trim()
+                        .toLowerCase();
+                boolean allowed = "a".equals(name)
+                        && ("title".equals(a) || "href".equals(a)
+                                && (value.startsWith("http:")
+                                        || value.startsWith("https:")
+                                        || value.startsWith("mailto:") || value
+                                        .indexOf(':') < 0));
+                if (!allowed) {
+                    e.removeAttribute(attributes.item(i).getNodeName());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.vaadin.dialogs;
+
+import java.lang.management.ManagementFactory;
+
+import com.vaadin.ui.Window;
+
+/**
+ * Heap retained by live sessions that show a dialog with its own message and
+ * by sessions that show a dialog built from a shared {@link DialogTemplate}.
+ *
+ * The sessions of each kind are kept alive together and the heap used after
+ * a full GC is compared with the heap before they were created. Sessions
+ * without a dialog are measured too, so the cost of the dialog itself is the
+ * difference to them. The allocation rate of {@link TemplateBenchmark} also
+ * counts the garbage, this counts only what stays in the heap.
+ *
+ * Run with:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.vaadin.dialogs.SessionHeapMeasurement 10000 multiline
+ * </pre>
+ *
+ */
+public class SessionHeapMeasurement {
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        String kind = args.length > 1 ? args[1] : BenchmarkMessages.MULTILINE;
+        String message = BenchmarkMessages.get(kind);
+        DialogTemplate template = new DefaultConfirmDialogFactory()
+                .createTemplate("Delete", message, "Delete", "Cancel");
+
+        // Warm up the classes and the shared values of the template
+        measure(100, null, null);
+        measure(100, message, null);
+        measure(100, null, template);
+
+        long empty = measure(sessions, null, null);
+        long plain = measure(sessions, message, null);
+        long templated = measure(sessions, null, template);
+        System.out.println(sessions + " sessions, " + kind + " message");
+        System.out.println("session:           " + empty + " B/session");
+        System.out.println("plain dialog:      " + (plain - empty)
+                + " B/session");
+        System.out.println("template dialog:   " + (templated - empty)
+                + " B/session");
+    }
+
+    /**
+     * Create live sessions showing a dialog and measure the heap they retain.
+     *
+     * @param sessions
+     *            Number of sessions.
+     * @param message
+     *            Message of a plain dialog or null.
+     * @param template
+     *            Template of the dialog or null.
+     * @return Retained bytes per session.
+     * @throws InterruptedException
+     */
+    static long measure(final int sessions, final String message,
+            final DialogTemplate template) throws InterruptedException {
+        Window[] windows = new Window[sessions];
+        long heapBefore = usedHeap();
+        for (int i = 0; i < sessions; i++) {
+            windows[i] = TemplateBenchmark.newSession();
+            if (template != null) {
+                ConfirmDialog.show(windows[i], template, null);
+            } else if (message != null) {
+                ConfirmDialog.show(windows[i], "Delete", message, "Delete",
+                        "Cancel", (ConfirmDialog.Listener) null);
+            }
+        }
+        long retained = usedHeap() - heapBefore;
+        if (windows[sessions - 1].getApplication() == null) {
+            throw new IllegalStateException("Session was not kept alive");
+        }
+        return retained / sessions;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+                .getUsed();
+    }
+}
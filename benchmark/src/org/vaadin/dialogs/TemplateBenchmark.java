@@ -0,0 +1,81 @@
+package org.vaadin.dialogs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * Per session cost of a dialog shown with its own message compared to a
+ * dialog built from a shared {@link DialogTemplate}.
+ *
+ * Each operation creates a session with a main window and shows the dialog
+ * in it. The allocation per operation (gc.alloc.rate.norm) is the memory a
+ * session spends on the dialog, which the template reduces by sharing the
+ * message, its escaped form and the size estimate.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+    @Param({ BenchmarkMessages.SHORT, BenchmarkMessages.LONG,
+            BenchmarkMessages.MULTILINE })
+    public String kind;
+
+    private String message;
+    private DialogTemplate template;
+
+    @Setup
+    public void setup() {
+        message = BenchmarkMessages.get(kind);
+        template = new DefaultConfirmDialogFactory().createTemplate("Delete",
+                message, "Delete", "Cancel");
+    }
+
+    @Benchmark
+    public ConfirmDialog plain() {
+        return ConfirmDialog.show(newSession(), "Delete", message, "Delete",
+                "Cancel", (ConfirmDialog.Listener) null);
+    }
+
+    @Benchmark
+    public ConfirmDialog template() {
+        return ConfirmDialog.show(newSession(), template, null);
+    }
+
+    static Window newSession() {
+        Application app = new SessionApplication();
+        Window main = new Window();
+        app.setMainWindow(main);
+        return main;
+    }
+
+    /**
+     * Application without an initial user interface.
+     */
+    static class SessionApplication extends Application {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void init() {
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.vaadin.dialogs;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.ui.Window;
+
+/**
+ * Per click cost of removing the dialog from its parent window: the former
+ * per click reflective lookup compared to {@link WindowCompat}.
+ *
+ * Both benchmarks add the window back before removing it, so only the
+ * difference between them is the removal cost.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WindowRemovalBenchmark {
+
+    private Window parent;
+    private Window child;
+
+    @Setup
+    public void setup() {
+        parent = new Window();
+        child = new Window();
+    }
+
+    @Benchmark
+    public Window reflectivePerClick() throws Exception {
+        parent.addWindow(child);
+        Method m = Window.class.getDeclaredMethod("removeWindow", Window.class);
+        m.invoke(parent, child);
+        return child;
+    }
+
+    @Benchmark
+    public Window compat() {
+        parent.addWindow(child);
+        WindowCompat.removeWindow(parent, child);
+        return child;
+    }
+}
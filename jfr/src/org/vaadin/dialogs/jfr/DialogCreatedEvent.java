@@ -0,0 +1,43 @@
+package org.vaadin.dialogs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A dialog was created by its factory.
+ *
+ * @author Sami Ekblad
+ *
+ */
+@Name("org.vaadin.dialogs.DialogCreated")
+@Label("Confirm Dialog Created")
+@Category({ "Vaadin", "ConfirmDialog" })
+@StackTrace(false)
+class DialogCreatedEvent extends Event {
+
+    @Label("Caption")
+    String caption;
+
+    @Label("Message Length")
+    int messageLength;
+
+    @Label("Content Mode")
+    int contentMode;
+
+    @Label("Width")
+    @Description("Estimated dialog width, in em by default")
+    float width;
+
+    @Label("Height")
+    @Description("Estimated dialog height, in em by default")
+    float height;
+
+    @Label("Creation Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long creationTime;
+}
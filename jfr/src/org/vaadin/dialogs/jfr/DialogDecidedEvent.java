@@ -0,0 +1,35 @@
+package org.vaadin.dialogs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A shown dialog was decided with the OK or cancel button or by closing the
+ * window.
+ *
+ * @author Sami Ekblad
+ *
+ */
+@Name("org.vaadin.dialogs.DialogDecided")
+@Label("Confirm Dialog Decided")
+@Category({ "Vaadin", "ConfirmDialog" })
+@StackTrace(false)
+class DialogDecidedEvent extends Event {
+
+    @Label("Caption")
+    String caption;
+
+    @Label("Message Length")
+    int messageLength;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Time to Decision")
+    @Timespan(Timespan.NANOSECONDS)
+    long decisionTime;
+}
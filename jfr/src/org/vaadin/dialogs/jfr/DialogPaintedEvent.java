@@ -0,0 +1,34 @@
+package org.vaadin.dialogs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A dialog and its components were painted to the client.
+ *
+ * @author Sami Ekblad
+ *
+ */
+@Name("org.vaadin.dialogs.DialogPainted")
+@Label("Confirm Dialog Painted")
+@Category({ "Vaadin", "ConfirmDialog" })
+@StackTrace(false)
+class DialogPaintedEvent extends Event {
+
+    @Label("Caption")
+    String caption;
+
+    @Label("Message Length")
+    int messageLength;
+
+    @Label("Content Mode")
+    int contentMode;
+
+    @Label("Paint Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long paintTime;
+}
@@ -0,0 +1,34 @@
+package org.vaadin.dialogs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A dialog was added to its parent window.
+ *
+ * @author Sami Ekblad
+ *
+ */
+@Name("org.vaadin.dialogs.DialogShown")
+@Label("Confirm Dialog Shown")
+@Category({ "Vaadin", "ConfirmDialog" })
+@StackTrace(false)
+class DialogShownEvent extends Event {
+
+    @Label("Caption")
+    String caption;
+
+    @Label("Message Length")
+    int messageLength;
+
+    @Label("Modal")
+    boolean modal;
+
+    @Label("Show Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long showTime;
+}
@@ -0,0 +1,124 @@
+package org.vaadin.dialogs.jfr;
+
+import org.vaadin.dialogs.ConfirmDialog;
+import org.vaadin.dialogs.DialogInstrumentation;
+
+/**
+ * Emits Java Flight Recorder events for the dialog lifecycle.
+ *
+ * Install with:
+ *
+ * <pre>
+ * JfrInstrumentation.install();
+ * </pre>
+ *
+ * The events are named org.vaadin.dialogs.DialogCreated, DialogShown,
+ * DialogPainted and DialogDecided and are recorded in the thread of the
+ * request, so they can be correlated with slow requests. When the events are
+ * not enabled in a running recording, the JIT removes the event allocation
+ * and only the enabled check remains.
+ *
+ * Any instrumentation set before, such as the DialogMetrics, keeps receiving
+ * the events.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class JfrInstrumentation implements DialogInstrumentation {
+
+    private final DialogInstrumentation delegate;
+
+    /**
+     * Emit JFR events for all dialogs in addition to the current
+     * instrumentation.
+     *
+     * @return
+     */
+    public static JfrInstrumentation install() {
+        JfrInstrumentation jfr = new JfrInstrumentation(
+                ConfirmDialog.getInstrumentation());
+        ConfirmDialog.setInstrumentation(jfr);
+        return jfr;
+    }
+
+    /**
+     * @param delegate
+     *            Instrumentation to pass the events on or null.
+     */
+    public JfrInstrumentation(final DialogInstrumentation delegate) {
+        this.delegate = delegate;
+    }
+
+    public DialogInstrumentation getDelegate() {
+        return delegate;
+    }
+
+    public void dialogCreated(final ConfirmDialog dialog, final long nanos) {
+        DialogCreatedEvent e = new DialogCreatedEvent();
+        if (e.isEnabled()) {
+            e.caption = dialog.getCaption();
+            e.messageLength = length(dialog.getMessage());
+            e.contentMode = dialog.getContentMode();
+            e.width = dialog.getWidth();
+            e.height = dialog.getHeight();
+            e.creationTime = nanos;
+            e.commit();
+        }
+        if (delegate != null) {
+            delegate.dialogCreated(dialog, nanos);
+        }
+    }
+
+    public void dialogShown(final ConfirmDialog dialog, final long nanos) {
+        DialogShownEvent e = new DialogShownEvent();
+        if (e.isEnabled()) {
+            e.caption = dialog.getCaption();
+            e.messageLength = length(dialog.getMessage());
+            e.modal = dialog.isModal();
+            e.showTime = nanos;
+            e.commit();
+        }
+        if (delegate != null) {
+            delegate.dialogShown(dialog, nanos);
+        }
+    }
+
+    public void dialogPainted(final ConfirmDialog dialog, final long nanos) {
+        DialogPaintedEvent e = new DialogPaintedEvent();
+        if (e.isEnabled()) {
+            e.caption = dialog.getCaption();
+            e.messageLength = length(dialog.getMessage());
+            e.contentMode = dialog.getContentMode();
+            e.paintTime = nanos;
+            e.commit();
+        }
+        if (delegate != null) {
+            delegate.dialogPainted(dialog, nanos);
+        }
+    }
+
+    public void dialogDecided(final ConfirmDialog dialog,
+            final ConfirmDialog.Outcome outcome, final long nanos) {
+        DialogDecidedEvent e = new DialogDecidedEvent();
+        if (e.isEnabled()) {
+            e.caption = dialog.getCaption();
+            e.messageLength = length(dialog.getMessage());
+            e.outcome = outcome.name();
+            e.decisionTime = nanos;
+            e.commit();
+        }
+        if (delegate != null) {
+            delegate.dialogDecided(dialog, outcome, nanos);
+        }
+    }
+
+    public void dialogClosed(final ConfirmDialog dialog) {
+        if (delegate != null) {
+            delegate.dialogClosed(dialog);
+        }
+    }
+
+    private static int length(final String message) {
+        return message != null ? message.length() : 0;
+    }
+}
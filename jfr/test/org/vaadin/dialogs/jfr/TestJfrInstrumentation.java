@@ -0,0 +1,187 @@
+package org.vaadin.dialogs.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vaadin.dialogs.ConfirmDialog;
+import org.vaadin.dialogs.DialogInstrumentation;
+
+import com.vaadin.Application;
+import com.vaadin.terminal.gwt.server.CommunicationManager;
+import com.vaadin.terminal.gwt.server.JsonPaintTarget;
+import com.vaadin.ui.Window;
+
+/**
+ * Recorded lifecycle events and the instrumentation chained before.
+ */
+@SuppressWarnings("serial")
+public class TestJfrInstrumentation {
+
+    private static final String[] EVENTS = {
+            "org.vaadin.dialogs.DialogCreated",
+            "org.vaadin.dialogs.DialogShown",
+            "org.vaadin.dialogs.DialogPainted",
+            "org.vaadin.dialogs.DialogDecided" };
+
+    /**
+     * Application without an initial user interface.
+     */
+    static class TestApplication extends Application {
+        @Override
+        public void init() {
+        }
+    }
+
+    /**
+     * Instrumentation counting the events passed on to it.
+     */
+    static class Counting implements DialogInstrumentation {
+        int created, shown, painted, decided, closed;
+
+        public void dialogCreated(ConfirmDialog dialog, long nanos) {
+            created++;
+        }
+
+        public void dialogShown(ConfirmDialog dialog, long nanos) {
+            shown++;
+        }
+
+        public void dialogPainted(ConfirmDialog dialog, long nanos) {
+            painted++;
+        }
+
+        public void dialogDecided(ConfirmDialog dialog,
+                ConfirmDialog.Outcome outcome, long nanos) {
+            decided++;
+        }
+
+        public void dialogClosed(ConfirmDialog dialog) {
+            closed++;
+        }
+    }
+
+    private Application app;
+    private Window main;
+    private DialogInstrumentation previous;
+    private Counting delegate;
+
+    @Before
+    public void setUp() {
+        app = new TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+        previous = ConfirmDialog.getInstrumentation();
+        delegate = new Counting();
+        ConfirmDialog.setInstrumentation(delegate);
+        JfrInstrumentation.install();
+    }
+
+    @After
+    public void tearDown() {
+        ConfirmDialog.setInstrumentation(previous);
+    }
+
+    /**
+     * Show a dialog, paint it and click its OK button.
+     */
+    private ConfirmDialog showAndConfirm() throws Exception {
+        ConfirmDialog d = ConfirmDialog.show(main, "Delete",
+                "Delete the record?", "Yes", "No",
+                new ConfirmDialog.Listener() {
+                    public void onClose(ConfirmDialog dialog) {
+                    }
+                });
+        PrintWriter pw = new PrintWriter(new StringWriter());
+        JsonPaintTarget target = new JsonPaintTarget(new CommunicationManager(
+                app), pw, false);
+        main.paint(target);
+        target.close();
+        d.getOkButton().changeVariables(d.getOkButton(),
+                Map.<String, Object> of("state", true));
+        return d;
+    }
+
+    @Test
+    public void lifecycleIsRecorded() throws Exception {
+        Map<String, RecordedEvent> events = new HashMap<String, RecordedEvent>();
+        ConfirmDialog d;
+        Path file = Files.createTempFile("dialogs", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : EVENTS) {
+                recording.enable(name);
+            }
+            recording.start();
+            d = showAndConfirm();
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> recorded = RecordingFile.readAllEvents(file);
+            for (RecordedEvent e : recorded) {
+                assertFalse(e.getEventType().getName(), events.containsKey(e
+                        .getEventType().getName()));
+                events.put(e.getEventType().getName(), e);
+            }
+        } finally {
+            Files.delete(file);
+        }
+        assertEquals(EVENTS.length, events.size());
+        int length = "Delete the record?".length();
+
+        RecordedEvent created = events.get(EVENTS[0]);
+        assertEquals("Delete", created.getString("caption"));
+        assertEquals(length, created.getInt("messageLength"));
+        assertEquals(d.getContentMode(), created.getInt("contentMode"));
+        assertEquals(d.getWidth(), created.getFloat("width"), 0f);
+        assertEquals(d.getHeight(), created.getFloat("height"), 0f);
+        assertTrue(created.getDuration("creationTime").toNanos() > 0);
+
+        RecordedEvent shown = events.get(EVENTS[1]);
+        assertEquals("Delete", shown.getString("caption"));
+        assertEquals(length, shown.getInt("messageLength"));
+        assertTrue(shown.getBoolean("modal"));
+        assertTrue(shown.getDuration("showTime").toNanos() > 0);
+
+        RecordedEvent painted = events.get(EVENTS[2]);
+        assertEquals("Delete", painted.getString("caption"));
+        assertEquals(length, painted.getInt("messageLength"));
+        assertEquals(d.getContentMode(), painted.getInt("contentMode"));
+        assertTrue(painted.getDuration("paintTime").toNanos() > 0);
+
+        RecordedEvent decided = events.get(EVENTS[3]);
+        assertEquals("Delete", decided.getString("caption"));
+        assertEquals(length, decided.getInt("messageLength"));
+        assertEquals("CONFIRMED", decided.getString("outcome"));
+        assertTrue(decided.getDuration("decisionTime").toNanos() > 0);
+    }
+
+    @Test
+    public void eventsArePassedToDelegate() throws Exception {
+        assertSame(delegate, ((JfrInstrumentation) ConfirmDialog
+                .getInstrumentation()).getDelegate());
+
+        // Without a recording the events are only passed on
+        showAndConfirm();
+        assertEquals(1, delegate.created);
+        assertEquals(1, delegate.shown);
+        assertEquals(1, delegate.painted);
+        assertEquals(1, delegate.decided);
+        assertEquals(1, delegate.closed);
+    }
+}
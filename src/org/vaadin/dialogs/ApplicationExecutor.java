@@ -0,0 +1,46 @@
+package org.vaadin.dialogs;
+
+import java.util.concurrent.Executor;
+
+import com.vaadin.Application;
+
+/**
+ * Executor running tasks on the calling thread while holding the application
+ * lock.
+ *
+ * Use this to update the user interface from a background thread, e.g. when
+ * an asynchronously confirmed action completes:
+ *
+ * <pre>
+ * ConfirmDialog.showAsync(window, &quot;Export?&quot;, export, pool)
+ *         .thenAcceptAsync(done, new ApplicationExecutor(app));
+ * </pre>
+ *
+ * The changes are sent to the browser with the next request, e.g. by a
+ * polling ProgressIndicator.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class ApplicationExecutor implements Executor {
+
+    private final Application application;
+
+    public ApplicationExecutor(final Application application) {
+        if (application == null) {
+            throw new IllegalArgumentException("Application cannot be null");
+        }
+        this.application = application;
+    }
+
+    public Application getApplication() {
+        return application;
+    }
+
+    public void execute(final Runnable task) {
+        // Vaadin synchronizes the request handling on the application
+        synchronized (application) {
+            task.run();
+        }
+    }
+}
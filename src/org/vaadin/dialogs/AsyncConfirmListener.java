@@ -0,0 +1,64 @@
+package org.vaadin.dialogs;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Listener completing a future with the dialog decision.
+ *
+ * If an action is given, it is run on the executor when the dialog is
+ * confirmed and the future is completed when the action has finished. The
+ * future and the action only live in the server memory and are not
+ * serialized with the session.
+ *
+ * @author Sami Ekblad
+ *
+ */
+class AsyncConfirmListener implements ConfirmDialog.Listener {
+
+    private static final long serialVersionUID = -6185101372296829151L;
+
+    private final transient CompletableFuture<Boolean> future = new CompletableFuture<Boolean>();
+    private final transient Runnable action;
+    private final transient Executor executor;
+
+    AsyncConfirmListener() {
+        this(null, null);
+    }
+
+    AsyncConfirmListener(final Runnable action, final Executor executor) {
+        this.action = action;
+        this.executor = executor;
+    }
+
+    CompletableFuture<Boolean> getFuture() {
+        return future;
+    }
+
+    public void onClose(final ConfirmDialog dialog) {
+        if (future == null) {
+            // Deserialized, nobody is waiting
+            return;
+        }
+        if (!dialog.isConfirmed()) {
+            future.complete(false);
+        } else if (action == null) {
+            future.complete(true);
+        } else {
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            action.run();
+                            future.complete(true);
+                        } catch (Throwable t) {
+                            future.completeExceptionally(t);
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
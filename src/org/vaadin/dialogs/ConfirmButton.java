@@ -0,0 +1,197 @@
+package org.vaadin.dialogs;
+
+import java.util.Map;
+
+import org.vaadin.dialogs.client.ui.VConfirmButton;
+
+import com.vaadin.Application;
+import com.vaadin.terminal.PaintException;
+import com.vaadin.terminal.PaintTarget;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.ClientWidget;
+
+/**
+ * Button asking for confirmation in the browser.
+ *
+ * The dialog caption, message and button captions are sent with the button,
+ * so the dialog opens on the client without a server round trip. Only the
+ * decision is sent to the server, where the listener is notified with a
+ * decided {@link ConfirmDialog} like for a dialog shown on the server. The
+ * dialog is not added to any window.
+ *
+ * Needs the ConfirmDialog widgetset. Without it the button is rendered as a
+ * normal button and a click shows a server side dialog instead.
+ *
+ * Click listeners are not notified. Use the dialog listener instead.
+ *
+ * <pre>
+ * layout.addComponent(new ConfirmButton(&quot;Delete&quot;, &quot;Delete the record?&quot;,
+ *         listener));
+ * </pre>
+ *
+ * @author Sami Ekblad
+ *
+ */
+@ClientWidget(VConfirmButton.class)
+public class ConfirmButton extends Button {
+
+    private static final long serialVersionUID = 3305947402715432856L;
+
+    private String dialogCaption;
+    private String message;
+    private String okCaption;
+    private String cancelCaption;
+    private ConfirmDialog.Listener listener;
+
+    /**
+     * @param caption
+     *            Caption of the button.
+     * @param message
+     *            Message of the dialog.
+     * @param listener
+     *            Listener for dialog result.
+     */
+    public ConfirmButton(final String caption, final String message,
+            final ConfirmDialog.Listener listener) {
+        this(caption, null, message, null, null, listener);
+    }
+
+    /**
+     * @param caption
+     *            Caption of the button.
+     * @param dialogCaption
+     *            Caption for the confirmation dialog window or null for
+     *            default.
+     * @param message
+     *            Message of the dialog or null for default.
+     * @param okCaption
+     *            Caption for the ok button or null for default.
+     * @param cancelCaption
+     *            Caption for cancel button or null for default.
+     * @param listener
+     *            Listener for dialog result.
+     */
+    public ConfirmButton(final String caption, final String dialogCaption,
+            final String message, final String okCaption,
+            final String cancelCaption, final ConfirmDialog.Listener listener) {
+        super(caption);
+        this.dialogCaption = dialogCaption;
+        this.message = message;
+        this.okCaption = okCaption;
+        this.cancelCaption = cancelCaption;
+        this.listener = listener;
+    }
+
+    @Override
+    public void paintContent(final PaintTarget target) throws PaintException {
+        super.paintContent(target);
+        DefaultCaptions defaults = getDefaultCaptions();
+        target.addAttribute(VConfirmButton.ATTR_DIALOG_CAPTION,
+                dialogCaption != null ? dialogCaption : defaults.getCaption());
+        target.addAttribute(VConfirmButton.ATTR_MESSAGE, MessageEscaper
+                .escape(message != null ? message : defaults.getMessage()));
+        target.addAttribute(VConfirmButton.ATTR_OK_CAPTION,
+                okCaption != null ? okCaption : defaults.getOkCaption());
+        target.addAttribute(VConfirmButton.ATTR_CANCEL_CAPTION,
+                cancelCaption != null ? cancelCaption : defaults
+                        .getCancelCaption());
+    }
+
+    @Override
+    public void changeVariables(final Object source,
+            final Map<String, Object> variables) {
+        super.changeVariables(source, variables);
+        Object confirmed = variables.get(VConfirmButton.VAR_CONFIRMED);
+        if (confirmed instanceof Boolean && isEnabled() && !isReadOnly()) {
+            decided((Boolean) confirmed);
+        }
+    }
+
+    /**
+     * Show a server side dialog when the button is clicked without the
+     * widgetset or with a click shortcut.
+     */
+    @Override
+    protected void fireClick() {
+        if (getWindow() != null) {
+            ConfirmDialog.show(getWindow(), dialogCaption, message, okCaption,
+                    cancelCaption, listener);
+        }
+    }
+
+    /**
+     * Notify the listener of a decision made in the browser.
+     *
+     * @param confirmed
+     * @return The decided dialog passed to the listener.
+     */
+    protected ConfirmDialog decided(final boolean confirmed) {
+        Application application = getApplication();
+        ConfirmDialog.Factory f = ConfirmDialog.getFactoryRegistry()
+                .getFactory(application);
+        ConfirmDialog d;
+        if (f instanceof DefaultConfirmDialogFactory) {
+            d = ((DefaultConfirmDialogFactory) f).create(application,
+                    dialogCaption, message, okCaption, cancelCaption);
+        } else {
+            d = ConfirmDialog.create(f, dialogCaption, message, okCaption,
+                    cancelCaption);
+        }
+        d.decide(confirmed);
+        if (listener != null) {
+            listener.onClose(d);
+        }
+        d.setClosed();
+        return d;
+    }
+
+    private DefaultCaptions getDefaultCaptions() {
+        Application application = getApplication();
+        return DefaultCaptions.get(application != null ? application
+                .getLocale() : null);
+    }
+
+    public String getDialogCaption() {
+        return dialogCaption;
+    }
+
+    public void setDialogCaption(final String dialogCaption) {
+        this.dialogCaption = dialogCaption;
+        requestRepaint();
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(final String message) {
+        this.message = message;
+        requestRepaint();
+    }
+
+    public String getOkCaption() {
+        return okCaption;
+    }
+
+    public void setOkCaption(final String okCaption) {
+        this.okCaption = okCaption;
+        requestRepaint();
+    }
+
+    public String getCancelCaption() {
+        return cancelCaption;
+    }
+
+    public void setCancelCaption(final String cancelCaption) {
+        this.cancelCaption = cancelCaption;
+        requestRepaint();
+    }
+
+    public ConfirmDialog.Listener getListener() {
+        return listener;
+    }
+
+    public void setListener(final ConfirmDialog.Listener listener) {
+        this.listener = listener;
+    }
+}
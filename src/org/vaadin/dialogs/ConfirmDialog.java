@@ -1,10 +1,25 @@
 package org.vaadin.dialogs;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectInputValidation;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
-import com.vaadin.terminal.gwt.server.JsonPaintTarget;
+import com.vaadin.Application;
+import com.vaadin.terminal.PaintException;
+import com.vaadin.terminal.PaintTarget;
 import com.vaadin.ui.Button;
+import com.vaadin.ui.Component;
 import com.vaadin.ui.Label;
+import com.vaadin.ui.VerticalLayout;
 import com.vaadin.ui.Window;
 
 public class ConfirmDialog extends Window {
@@ -16,14 +31,11 @@ public class ConfirmDialog extends Window {
                 String okTitle, String cancelTitle);
     }
 
-    static final String DEFAULT_WINDOW_CAPTION = "Confirm";
-    static final String DEFAULT_CANCEL_CAPTION = "Cancel";
-    static final String DEFAULT_OK_CAPTION = "Ok";
-
     public static final int CONTENT_TEXT_WITH_NEWLINES = -1;
     public static final int CONTENT_TEXT = Label.CONTENT_TEXT;
     public static final int CONTENT_PREFORMATTED = Label.CONTENT_PREFORMATTED;
     public static final int CONTENT_HTML = Label.CONTENT_RAW;
+    public static final int CONTENT_HTML_SANITIZED = -2;
     public static final int CONTENT_DEFAULT = CONTENT_TEXT_WITH_NEWLINES;
 
     /**
@@ -38,23 +50,70 @@ public class ConfirmDialog extends Window {
     }
 
     /**
-     * Default dialog factory.
+     * Lifecycle state of a dialog.
+     * 
+     * A dialog is created, shown, decided exactly once (confirmed or not) and
+     * closed after the listener has been notified.
+     */
+    public enum State {
+        CREATED, SHOWN, DECIDED, CLOSED
+    }
+
+    /**
+     * How a dialog was decided.
+     */
+    public enum Outcome {
+        /** The OK button was clicked. */
+        CONFIRMED,
+        /** The cancel button was clicked. */
+        CANCELLED,
+        /** The window was closed without clicking a button. */
+        CLOSED,
+        /** The dialog was not decided before its decision timeout. */
+        TIMED_OUT
+    }
+
+    /**
+     * Dialog factories by application and locale.
+     * 
+     */
+    private static final FactoryRegistry factoryRegistry = new FactoryRegistry();
+
+    /**
+     * Scheduler for confirmed actions.
+     */
+    private static volatile ConfirmedActionScheduler actionScheduler;
+
+    /**
+     * Lifecycle event hook.
+     */
+    private static volatile DialogInstrumentation instrumentation;
+
+    /**
+     * Sanitizer of the {@link #CONTENT_HTML_SANITIZED} messages.
+     */
+    private static volatile HtmlSanitizer htmlSanitizer = HtmlSanitizer.DEFAULT;
+
+    /**
+     * Get the registry of factories for applications and locales.
      * 
+     * @return
      */
-    private static ConfirmDialog.Factory factoryInstance;
+    public static FactoryRegistry getFactoryRegistry() {
+        return factoryRegistry;
+    }
 
     /**
      * Get the ConfirmDialog.Factory used to create and configure the dialog.
      * 
-     * By default the {@link DefaultConfirmDialogFactory} is used.
+     * By default the {@link DefaultConfirmDialogFactory} is used. Factories
+     * registered for an application or a locale in the
+     * {@link #getFactoryRegistry()} override this.
      * 
      * @return
      */
     public static ConfirmDialog.Factory getFactory() {
-        if (factoryInstance == null) {
-            factoryInstance = new DefaultConfirmDialogFactory();
-        }
-        return factoryInstance;
+        return factoryRegistry.getDefaultFactory();
     }
 
     /**
@@ -65,7 +124,178 @@ public class ConfirmDialog extends Window {
      * @return
      */
     public static void setFactory(final ConfirmDialog.Factory newFactory) {
-        factoryInstance = newFactory;
+        factoryRegistry.setDefaultFactory(newFactory);
+    }
+
+    /**
+     * Get the scheduler for the confirmed Runnable actions.
+     * 
+     * @return The scheduler or null if the actions are run on the request
+     *         thread.
+     */
+    public static ConfirmedActionScheduler getActionScheduler() {
+        return actionScheduler;
+    }
+
+    /**
+     * Set the scheduler for the confirmed Runnable actions.
+     * 
+     * By default there is no scheduler and the actions are run immediately on
+     * the request thread.
+     * 
+     * @param scheduler
+     *            Scheduler or null to run actions on the request thread.
+     */
+    public static void setActionScheduler(
+            final ConfirmedActionScheduler scheduler) {
+        actionScheduler = scheduler;
+    }
+
+    /**
+     * Get the hook receiving the dialog lifecycle events.
+     * 
+     * @return The instrumentation or null if disabled.
+     */
+    public static DialogInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Set the hook receiving the dialog lifecycle events.
+     * 
+     * @see DialogMetrics
+     * @param instrumentation
+     *            Instrumentation or null to disable.
+     */
+    public static void setInstrumentation(
+            final DialogInstrumentation instrumentation) {
+        ConfirmDialog.instrumentation = instrumentation;
+    }
+
+    /**
+     * Get the sanitizer of the messages shown with the
+     * {@link #CONTENT_HTML_SANITIZED} content mode.
+     * 
+     * @return
+     */
+    public static HtmlSanitizer getHtmlSanitizer() {
+        return htmlSanitizer;
+    }
+
+    /**
+     * Set the sanitizer of the messages shown with the
+     * {@link #CONTENT_HTML_SANITIZED} content mode.
+     * 
+     * By default {@link HtmlSanitizer#DEFAULT} is used.
+     * 
+     * @param sanitizer
+     */
+    public static void setHtmlSanitizer(final HtmlSanitizer sanitizer) {
+        if (sanitizer == null) {
+            throw new IllegalArgumentException("Sanitizer cannot be null");
+        }
+        htmlSanitizer = sanitizer;
+    }
+
+    /**
+     * Create a dialog to be shown in the given window using the factory of
+     * the window application.
+     * 
+     * A {@link DefaultConfirmDialogFactory} is given the application of the
+     * parent window for the default captions of the application locale, and
+     * a {@link PooledConfirmDialogFactory} to reuse a closed dialog. Other
+     * factories are given the missing captions as null.
+     */
+    private static ConfirmDialog create(final Window parentWindow,
+            final String windowCaption, final String message,
+            final String okCaption, final String cancelCaption) {
+        return create(parentWindow, windowCaption, message, null, okCaption,
+                cancelCaption);
+    }
+
+    /**
+     * Create a dialog for a message or message lines.
+     * 
+     * Lines are paged if the factory is a {@link DefaultConfirmDialogFactory}
+     * and joined into a single message otherwise.
+     */
+    private static ConfirmDialog create(final Window parentWindow,
+            final String windowCaption, final String message,
+            final Iterable<String> lines, final String okCaption,
+            final String cancelCaption) {
+        Application application = parentWindow.getApplication();
+        Factory f = factoryRegistry.getFactory(application);
+        if (lines != null && f instanceof DefaultConfirmDialogFactory) {
+            return ((DefaultConfirmDialogFactory) f).createPaged(application,
+                    windowCaption, lines, PagedMessage.DEFAULT_PAGE_SIZE,
+                    okCaption, cancelCaption);
+        } else if (lines != null) {
+            return create(f, windowCaption, PagedMessage.join(lines),
+                    okCaption, cancelCaption);
+        } else if (f instanceof DefaultConfirmDialogFactory) {
+            return ((DefaultConfirmDialogFactory) f).create(application,
+                    windowCaption, message, okCaption, cancelCaption);
+        } else {
+            return create(f, windowCaption, message, okCaption,
+                    cancelCaption);
+        }
+    }
+
+    /**
+     * Create a dialog with a factory other than
+     * {@link DefaultConfirmDialogFactory} and report it to the
+     * instrumentation. The default factory reports its dialogs itself.
+     */
+    static ConfirmDialog create(final Factory f, final String windowCaption,
+            final String message, final String okCaption,
+            final String cancelCaption) {
+        DialogInstrumentation hook = instrumentation;
+        long start = hook != null ? System.nanoTime() : 0;
+        ConfirmDialog d = f.create(windowCaption, message, okCaption,
+                cancelCaption);
+        if (hook != null) {
+            hook.dialogCreated(d, System.nanoTime() - start);
+        }
+        return d;
+    }
+
+    /**
+     * Create a dialog for a template message.
+     * 
+     * Factories other than {@link DefaultConfirmDialogFactory} and its
+     * pooling subclass are given the formatted message.
+     */
+    private static ConfirmDialog create(final Window parentWindow,
+            final String windowCaption, final MessageTemplate message,
+            final Object[] params, final String okCaption,
+            final String cancelCaption) {
+        Application application = parentWindow.getApplication();
+        Factory f = factoryRegistry.getFactory(application);
+        if (f instanceof PooledConfirmDialogFactory
+                || !(f instanceof DefaultConfirmDialogFactory)) {
+            return create(parentWindow, windowCaption,
+                    message.format(params), okCaption, cancelCaption);
+        }
+        return ((DefaultConfirmDialogFactory) f).create(application,
+                windowCaption, message, params, okCaption, cancelCaption);
+    }
+
+    /**
+     * Create a dialog from a shared template.
+     * 
+     * Factories other than {@link DefaultConfirmDialogFactory} and its
+     * pooling subclass are given the template captions and message.
+     */
+    private static ConfirmDialog create(final Window parentWindow,
+            final DialogTemplate template) {
+        Factory f = factoryRegistry.getFactory(parentWindow.getApplication());
+        if (f instanceof PooledConfirmDialogFactory
+                || !(f instanceof DefaultConfirmDialogFactory)) {
+            return create(parentWindow, template.getCaption(),
+                    template.getMessage(), template.getOkCaption(),
+                    template.getCancelCaption());
+        }
+        return ((DefaultConfirmDialogFactory) f).create(template);
     }
 
     /**
@@ -113,12 +343,234 @@ public class ConfirmDialog extends Window {
             final String windowCaption, final String message,
             final String okCaption, final String cancelCaption,
             final Listener listener) {
-        ConfirmDialog d = getFactory().create(windowCaption, message,
+        return show(parentWindow, windowCaption, message, okCaption,
+                cancelCaption, listener, 0);
+    }
+
+    /**
+     * Show a modal ConfirmDialog in a window and cancel it if the user does
+     * not decide in time.
+     * 
+     * @see #show(Window, Listener, boolean, long)
+     * @param parentWindow
+     *            Main level window.
+     * @param windowCaption
+     *            Caption for the confirmation dialog window.
+     * @param message
+     *            Message to display as window content.
+     * @param okCaption
+     *            Caption for the ok button.
+     * @param cancelCaption
+     *            Caption for cancel button.
+     * @param listener
+     *            Listener for dialog result.
+     * @param decisionTimeout
+     *            Milliseconds to wait for the decision or 0 to wait forever.
+     * @return
+     */
+    public static ConfirmDialog show(final Window parentWindow,
+            final String windowCaption, final String message,
+            final String okCaption, final String cancelCaption,
+            final Listener listener, final long decisionTimeout) {
+        ConfirmDialog d = create(parentWindow, windowCaption, message,
+                okCaption, cancelCaption);
+        d.show(parentWindow, listener, true, decisionTimeout);
+        return d;
+    }
+
+    /**
+     * Show a modal ConfirmDialog prepared as a shared template.
+     * 
+     * The dialog uses the escaped message and the size of the template.
+     * 
+     * @see DialogTemplate
+     * @param parentWindow
+     *            Main level window.
+     * @param template
+     *            Dialog template.
+     * @param listener
+     *            Listener for dialog result.
+     * @return
+     */
+    public static ConfirmDialog show(final Window parentWindow,
+            final DialogTemplate template, final Listener listener) {
+        if (template == null) {
+            throw new IllegalArgumentException("Template cannot be null");
+        }
+        ConfirmDialog d = create(parentWindow, template);
+        d.show(parentWindow, listener, true);
+        return d;
+    }
+
+    /**
+     * Show a modal ConfirmDialog with a template message.
+     * 
+     * The template is escaped once when compiled and only the parameters are
+     * escaped for this dialog.
+     * 
+     * @see MessageTemplate
+     * @param parentWindow
+     *            Main level window.
+     * @param message
+     *            Message template.
+     * @param listener
+     *            Listener for dialog result.
+     * @param params
+     *            Parameters inserted into the message.
+     * @return
+     */
+    public static ConfirmDialog show(final Window parentWindow,
+            final MessageTemplate message, final Listener listener,
+            final Object... params) {
+        return show(parentWindow, null, message, null, null, listener, params);
+    }
+
+    /**
+     * Show a modal ConfirmDialog with a template message.
+     * 
+     * @see MessageTemplate
+     * @param parentWindow
+     *            Main level window.
+     * @param windowCaption
+     *            Caption for the confirmation dialog window.
+     * @param message
+     *            Message template.
+     * @param okCaption
+     *            Caption for the ok button.
+     * @param cancelCaption
+     *            Caption for cancel button.
+     * @param listener
+     *            Listener for dialog result.
+     * @param params
+     *            Parameters inserted into the message.
+     * @return
+     */
+    public static ConfirmDialog show(final Window parentWindow,
+            final String windowCaption, final MessageTemplate message,
+            final String okCaption, final String cancelCaption,
+            final Listener listener, final Object... params) {
+        if (message == null) {
+            throw new IllegalArgumentException("Message cannot be null");
+        }
+        ConfirmDialog d = create(parentWindow, windowCaption, message, params,
+                okCaption, cancelCaption);
+        d.show(parentWindow, listener, true);
+        return d;
+    }
+
+    /**
+     * Show a modal ConfirmDialog for a large message given as lines.
+     * 
+     * Only the first page of lines is rendered and sent to the client. The
+     * user loads more with the "show more" button below the lines. Lines
+     * from a list are read by index and other sources lazily, e.g. a stream
+     * with {@code stream::iterator}.
+     * 
+     * @see PagedMessage
+     * @param parentWindow
+     *            Main level window.
+     * @param windowCaption
+     *            Caption for the confirmation dialog window.
+     * @param lines
+     *            Lines of the message.
+     * @param okCaption
+     *            Caption for the ok button.
+     * @param cancelCaption
+     *            Caption for cancel button.
+     * @param listener
+     *            Listener for dialog result.
+     * @return
+     */
+    public static ConfirmDialog showLines(final Window parentWindow,
+            final String windowCaption, final Iterable<String> lines,
+            final String okCaption, final String cancelCaption,
+            final Listener listener) {
+        if (lines == null) {
+            throw new IllegalArgumentException("Lines cannot be null");
+        }
+        ConfirmDialog d = create(parentWindow, windowCaption, null, lines,
                 okCaption, cancelCaption);
         d.show(parentWindow, listener, true);
         return d;
     }
 
+    /**
+     * Show a single modal ConfirmDialog for a batch of items.
+     *
+     * The items are listed with a check box each and the "select all" and
+     * "select none" buttons. The toggles are sent with the dialog button
+     * click and the listener is given the selected items in one call. Only
+     * the first page of items is rendered, the rest are added with the "show
+     * more" button.
+     *
+     * Factories other than {@link DefaultConfirmDialogFactory} show the items
+     * as message lines and all items are selected when confirmed.
+     *
+     * @see ItemSelection
+     * @param parentWindow
+     *            Main level window.
+     * @param windowCaption
+     *            Caption for the confirmation dialog window.
+     * @param message
+     *            Message shown above the items or null for none.
+     * @param items
+     *            Items to confirm. All are initially selected.
+     * @param okCaption
+     *            Caption for the ok button.
+     * @param cancelCaption
+     *            Caption for cancel button.
+     * @param listener
+     *            Listener for the selected items.
+     * @return
+     */
+    public static <T> ConfirmDialog showItems(final Window parentWindow,
+            final String windowCaption, final String message,
+            final List<T> items, final String okCaption,
+            final String cancelCaption,
+            final ItemSelection.Listener<T> listener) {
+        if (items == null) {
+            throw new IllegalArgumentException("Items cannot be null");
+        }
+        Application application = parentWindow.getApplication();
+        Factory f = factoryRegistry.getFactory(application);
+        final ItemSelection<T> selection;
+        ConfirmDialog d;
+        if (f instanceof DefaultConfirmDialogFactory) {
+            selection = new ItemSelection<T>(items,
+                    PagedMessage.DEFAULT_PAGE_SIZE, true);
+            d = ((DefaultConfirmDialogFactory) f).createSelection(
+                    application, windowCaption, message, selection,
+                    okCaption, cancelCaption);
+        } else {
+            selection = null;
+            List<String> lines = new ArrayList<String>(items.size() + 1);
+            if (message != null) {
+                lines.add(message);
+            }
+            for (T item : items) {
+                lines.add(String.valueOf(item));
+            }
+            d = create(f, windowCaption, PagedMessage.join(lines), okCaption,
+                    cancelCaption);
+        }
+        d.show(parentWindow, listener == null ? null : new Listener() {
+            private static final long serialVersionUID = 1L;
+
+            public void onClose(ConfirmDialog dialog) {
+                List<T> selected;
+                if (!dialog.isConfirmed()) {
+                    selected = Collections.emptyList();
+                } else if (selection != null) {
+                    selected = selection.getSelectedItems();
+                } else {
+                    selected = new ArrayList<T>(items);
+                }
+                listener.onClose(dialog, selected);
+            }
+        }, true);
+        return d;
+    }
+
     /**
      * Shows a modal ConfirmDialog in given window and executes Runnable if OK
      * is chosen.
@@ -134,32 +586,145 @@ public class ConfirmDialog extends Window {
      * @param cancelCaption
      *            Caption for cancel button.
      * @param r
-     *            Runnable to be run if confirmed
+     *            Runnable to be run if confirmed. If an action scheduler is
+     *            set, it is run by the scheduler.
      * @return
      */
     public static ConfirmDialog show(final Window parentWindow,
             final String windowCaption, final String message,
             final String okCaption, final String cancelCaption, final Runnable r) {
-        ConfirmDialog d = getFactory().create(windowCaption, message,
+        ConfirmDialog d = create(parentWindow, windowCaption, message,
                 okCaption, cancelCaption);
         d.show(parentWindow, new Listener() {
             public void onClose(ConfirmDialog dialog) {
                 if (dialog.isConfirmed()) {
-                    r.run();
+                    ConfirmedActionScheduler scheduler = getActionScheduler();
+                    if (scheduler != null) {
+                        scheduler.schedule(parentWindow, dialog, r);
+                    } else {
+                        r.run();
+                    }
                 }
             }
         }, true);
         return d;
     }
 
+    /**
+     * Show a modal ConfirmDialog in a window and return the decision as a
+     * future.
+     * 
+     * The future is completed on the request thread when the dialog is
+     * closed: true if confirmed, false otherwise.
+     * 
+     * @param parentWindow
+     *            Main level window.
+     * @param windowCaption
+     *            Caption for the confirmation dialog window.
+     * @param message
+     *            Message to display as window content.
+     * @param okCaption
+     *            Caption for the ok button.
+     * @param cancelCaption
+     *            Caption for cancel button.
+     * @return
+     */
+    public static CompletableFuture<Boolean> showAsync(
+            final Window parentWindow, final String windowCaption,
+            final String message, final String okCaption,
+            final String cancelCaption) {
+        AsyncConfirmListener l = new AsyncConfirmListener();
+        show(parentWindow, windowCaption, message, okCaption, cancelCaption, l);
+        return l.getFuture();
+    }
+
+    /**
+     * Show a modal ConfirmDialog in a window and run the action on the given
+     * executor if confirmed.
+     * 
+     * The action is not run on the request thread, so a slow action does not
+     * block the user interface. Use an {@link ApplicationExecutor} to update
+     * the user interface when the returned future completes.
+     * 
+     * @param parentWindow
+     *            Main level window.
+     * @param message
+     *            Message to display as window content.
+     * @param action
+     *            Action to run if confirmed.
+     * @param executor
+     *            Executor to run the action, e.g. a bounded thread pool.
+     * @return Future completed with true when the action has finished or with
+     *         false if the dialog was not confirmed.
+     */
+    public static CompletableFuture<Boolean> showAsync(
+            final Window parentWindow, final String message,
+            final Runnable action, final Executor executor) {
+        return showAsync(parentWindow, null, message, null, null, action,
+                executor);
+    }
+
+    /**
+     * Show a modal ConfirmDialog in a window and run the action on the given
+     * executor if confirmed.
+     * 
+     * @see #showAsync(Window, String, Runnable, Executor)
+     * @param parentWindow
+     *            Main level window.
+     * @param windowCaption
+     *            Caption for the confirmation dialog window.
+     * @param message
+     *            Message to display as window content.
+     * @param okCaption
+     *            Caption for the ok button.
+     * @param cancelCaption
+     *            Caption for cancel button.
+     * @param action
+     *            Action to run if confirmed.
+     * @param executor
+     *            Executor to run the action.
+     * @return Future completed with true when the action has finished or with
+     *         false if the dialog was not confirmed.
+     */
+    public static CompletableFuture<Boolean> showAsync(
+            final Window parentWindow, final String windowCaption,
+            final String message, final String okCaption,
+            final String cancelCaption, final Runnable action,
+            final Executor executor) {
+        if (action == null || executor == null) {
+            throw new IllegalArgumentException(
+                    "Action and executor cannot be null");
+        }
+        AsyncConfirmListener l = new AsyncConfirmListener(action, executor);
+        show(parentWindow, windowCaption, message, okCaption, cancelCaption, l);
+        return l.getFuture();
+    }
+
     private Listener confirmListener = null;
     private boolean isConfirmed = false;
-    private Label messageLabel = null;
-    private Button okBtn = null;
-    private Button cancelBtn = null;
+    private Outcome outcome = null;
+    private long expiryTime = 0;
+    private transient long shownAt = 0;
+    private transient DialogInstrumentation openCountedBy = null;
+    private transient boolean expiring = false;
+    private final AtomicReference<State> state = new AtomicReference<State>(
+            State.CREATED);
+    private DefaultConfirmDialogFactory factory = null;
+    private boolean rebuilt = false;
+    private boolean sized = false;
+    private transient Label messageLabel = null;
+    private transient Button okBtn = null;
+    private transient Button cancelBtn = null;
     private String originalMessageText;
+    private MessageTemplate messageTemplate;
+    private String[] messageParams;
+    private DialogTemplate dialogTemplate;
     private int msgContentMode = CONTENT_TEXT_WITH_NEWLINES;
 
+    public ConfirmDialog() {
+        super("", new Content());
+    }
+
     /**
      * Show confirm dialog.
      * 
@@ -167,10 +732,128 @@ public class ConfirmDialog extends Window {
      */
     public final void show(final Window parentWindow, final Listener listener,
             final boolean modal) {
+        show(parentWindow, listener, modal, 0);
+    }
+
+    /**
+     * Show confirm dialog and cancel it if the user does not decide in time.
+     * 
+     * When the timeout expires, the dialog is removed and the listener is
+     * notified with the {@link Outcome#TIMED_OUT} outcome. This releases the
+     * dialog and everything its listener refers to when the user has left
+     * the dialog open. The timeouts of an application are handled by a
+     * single sweeper, not a thread per dialog. The timeout is not restored
+     * when the session is deserialized.
+     * 
+     * @param parentWindow
+     * @param listener
+     * @param modal
+     * @param decisionTimeout
+     *            Milliseconds to wait for the decision or 0 to wait forever.
+     */
+    public final void show(final Window parentWindow, final Listener listener,
+            final boolean modal, final long decisionTimeout) {
+        if (decisionTimeout < 0) {
+            throw new IllegalArgumentException(
+                    "Decision timeout cannot be negative");
+        }
         confirmListener = listener;
+        DialogInstrumentation hook = instrumentation;
+        long start = System.nanoTime();
+        boolean shown = state.compareAndSet(State.CREATED, State.SHOWN);
+        if (shown) {
+            shownAt = start;
+        }
         center();
         setModal(modal);
         parentWindow.addWindow(this);
+        if (shown && decisionTimeout > 0) {
+            if (parentWindow.getApplication() == null) {
+                throw new IllegalArgumentException(
+                        "A decision timeout needs a window attached to an application");
+            }
+            expiryTime = System.currentTimeMillis() + decisionTimeout;
+            DialogExpirySweeper.schedule(parentWindow.getApplication(), this);
+        }
+        if (shown && hook != null) {
+            openCountedBy = hook;
+            hook.dialogShown(this, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Get the time when the dialog is cancelled if not decided.
+     * 
+     * @return Time in milliseconds as System.currentTimeMillis() or 0 if the
+     *         dialog has no decision timeout.
+     */
+    public final long getExpiryTime() {
+        return expiryTime;
+    }
+
+    /**
+     * Cancel the dialog with the {@link Outcome#TIMED_OUT} outcome if it has
+     * not been decided yet.
+     */
+    final void expire() {
+        if (!isPending()) {
+            return;
+        }
+        expiring = true;
+        try {
+            close();
+        } finally {
+            expiring = false;
+        }
+
+        // Factories without a close listener
+        if (decide(Outcome.TIMED_OUT)) {
+            if (confirmListener != null) {
+                confirmListener.onClose(this);
+            }
+            setClosed();
+        }
+    }
+
+    /**
+     * Is the dialog being closed because of its decision timeout.
+     * 
+     * @return
+     */
+    final boolean isExpiring() {
+        return expiring;
+    }
+
+    @Override
+    public synchronized void paintContent(final PaintTarget target)
+            throws PaintException {
+        DialogInstrumentation hook = instrumentation;
+        if (hook == null) {
+            super.paintContent(target);
+            return;
+        }
+        long start = System.nanoTime();
+        super.paintContent(target);
+        hook.dialogPainted(this, System.nanoTime() - start);
+    }
+
+    /**
+     * Close the dialog by removing it from its parent window.
+     * 
+     * This is used for all close paths: the dialog buttons, the window close
+     * button and programmatic closing.
+     */
+    @Override
+    public void close() {
+        // We need to cast this way, because of the backward
+        // compatibility issue in 6.4 series.
+        Component parent = getParent();
+        if (parent instanceof Window) {
+            ((Window) parent).focus();
+            WindowCompat.removeWindow((Window) parent, this);
+        } else {
+            fireClose();
+        }
     }
 
     /**
@@ -182,6 +865,103 @@ public class ConfirmDialog extends Window {
         return isConfirmed;
     }
 
+    /**
+     * How the dialog was decided.
+     * 
+     * @return The outcome or null if the dialog has not been decided yet.
+     */
+    public final Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Get the lifecycle state of the dialog.
+     * 
+     * @return
+     */
+    public final State getState() {
+        return state.get();
+    }
+
+    /**
+     * Is the dialog still waiting for the user decision.
+     * 
+     * @return true if the dialog has not been decided yet.
+     */
+    public final boolean isPending() {
+        State s = state.get();
+        return s == State.CREATED || s == State.SHOWN;
+    }
+
+    /**
+     * Decide the dialog. Only the first decision is accepted, so this is used
+     * by the listeners to avoid double processing.
+     * 
+     * @param confirmed
+     *            Did the user confirm the dialog.
+     * @return true if this call decided the dialog, false if it was already
+     *         decided.
+     */
+    protected final boolean decide(final boolean confirmed) {
+        return decide(confirmed ? Outcome.CONFIRMED : Outcome.CANCELLED);
+    }
+
+    /**
+     * Decide the dialog with the given outcome. Only the first decision is
+     * accepted.
+     * 
+     * @param outcome
+     *            How the dialog was decided.
+     * @return true if this call decided the dialog, false if it was already
+     *         decided.
+     */
+    protected final boolean decide(final Outcome outcome) {
+        if (state.compareAndSet(State.SHOWN, State.DECIDED)) {
+            decided(outcome);
+            DialogInstrumentation hook = instrumentation;
+            if (hook != null && shownAt != 0) {
+                hook.dialogDecided(this, outcome, System.nanoTime() - shownAt);
+            }
+            return true;
+        }
+        if (state.compareAndSet(State.CREATED, State.DECIDED)) {
+            decided(outcome);
+            return true;
+        }
+        return false;
+    }
+
+    private void decided(final Outcome outcome) {
+        this.outcome = outcome;
+        isConfirmed = outcome == Outcome.CONFIRMED;
+    }
+
+    /**
+     * Mark the decided dialog closed after its listener has been notified.
+     */
+    protected final void setClosed() {
+        state.compareAndSet(State.DECIDED, State.CLOSED);
+        closedOpen();
+    }
+
+    @Override
+    public void detach() {
+        super.detach();
+        closedOpen();
+    }
+
+    /**
+     * Report the end of a shown dialog once to the instrumentation that was
+     * told it was shown.
+     */
+    private void closedOpen() {
+        DialogInstrumentation hook = openCountedBy;
+        if (hook != null) {
+            openCountedBy = null;
+            hook.dialogClosed(this);
+        }
+    }
+
     public final Listener getListener() {
         return confirmListener;
     }
@@ -206,39 +986,302 @@ public class ConfirmDialog extends Window {
         messageLabel = message;
     }
 
+    protected final Label getMessageLabel() {
+        return messageLabel;
+    }
+
     public final void setMessage(final String message) {
         originalMessageText = message;
+        messageTemplate = null;
+        messageParams = null;
+        dialogTemplate = null;
+        messageLabel.setValue(toLabelValue(message));
+    }
+
+    /**
+     * Set the message from a template. Only the parameters are escaped and
+     * the plain text message is formatted only when needed.
+     * 
+     * @param template
+     *            Message template.
+     * @param params
+     *            Parameters inserted into the message. They are kept as
+     *            strings.
+     */
+    public final void setMessage(final MessageTemplate template,
+            final Object... params) {
+        if (template == null) {
+            throw new IllegalArgumentException("Template cannot be null");
+        }
+        String[] p = new String[params != null ? params.length : 0];
+        for (int i = 0; i < p.length; i++) {
+            p[i] = String.valueOf(params[i]);
+        }
+        originalMessageText = null;
+        messageTemplate = template;
+        messageParams = p;
+        dialogTemplate = null;
+        messageLabel
+                .setValue(CONTENT_TEXT_WITH_NEWLINES == msgContentMode ? template
+                        .render((Object[]) p) : toLabelValue(template
+                        .format((Object[]) p)));
+    }
+
+    /**
+     * Set the message of a shared template. The escaped message of the
+     * template is used as is.
+     * 
+     * @param template
+     */
+    public final void setMessage(final DialogTemplate template) {
+        originalMessageText = template.getMessage();
+        messageTemplate = null;
+        messageParams = null;
+        dialogTemplate = template;
         messageLabel
-                .setValue(CONTENT_TEXT_WITH_NEWLINES == msgContentMode ? formatDialogMessage(message)
-                        : message);
+                .setValue(CONTENT_TEXT_WITH_NEWLINES == msgContentMode ? template
+                        .getEscapedMessage() : toLabelValue(template
+                        .getMessage()));
     }
 
     public final String getMessage() {
+        if (originalMessageText == null && messageTemplate != null) {
+            originalMessageText = messageTemplate
+                    .format((Object[]) messageParams);
+        }
         return originalMessageText;
     }
 
+    /**
+     * Get the template of the message.
+     * 
+     * @return The template or null if the message was set as a string.
+     */
+    public final MessageTemplate getMessageTemplate() {
+        return messageTemplate;
+    }
+
+    /**
+     * Get the shared template of the dialog.
+     * 
+     * @return The template or null if the message was not set from a
+     *         {@link DialogTemplate}.
+     */
+    public final DialogTemplate getDialogTemplate() {
+        return dialogTemplate;
+    }
+
     public final int getContentMode() {
         return msgContentMode;
     }
 
+    /**
+     * Set how the message is rendered. The size of the dialog is estimated
+     * again for the new content mode if the dialog has a sizing factory.
+     * 
+     * @param contentMode
+     */
     public final void setContentMode(final int contentMode) {
+        boolean changed = contentMode != msgContentMode;
         msgContentMode = contentMode;
-        messageLabel
-                .setContentMode(contentMode == CONTENT_TEXT_WITH_NEWLINES ? CONTENT_TEXT
-                        : contentMode);
-        messageLabel
-                .setValue(contentMode == CONTENT_TEXT_WITH_NEWLINES ? formatDialogMessage(originalMessageText)
-                        : originalMessageText);
+        applyContentMode();
+        if (changed && sized) {
+            factory.setDialogSize(this, getMessage());
+        }
+    }
+
+    /**
+     * Render the message to the label in the current content mode.
+     */
+    private void applyContentMode() {
+        messageLabel.setContentMode(getLabelContentMode());
+        if (msgContentMode == CONTENT_TEXT_WITH_NEWLINES
+                && dialogTemplate != null) {
+            messageLabel.setValue(dialogTemplate.getEscapedMessage());
+        } else if (msgContentMode == CONTENT_TEXT_WITH_NEWLINES
+                && messageTemplate != null) {
+            messageLabel.setValue(messageTemplate
+                    .render((Object[]) messageParams));
+        } else {
+            messageLabel.setValue(toLabelValue(getMessage()));
+        }
+        if (messageLabel.getParent() instanceof PagedMessage) {
+            ((PagedMessage) messageLabel.getParent()).renderPages(this);
+        }
+    }
+
+    /**
+     * Render a part of the message to another label in the current content
+     * mode, like the pages of a {@link PagedMessage}.
+     * 
+     * @param label
+     * @param text
+     */
+    final void render(final Label label, final String text) {
+        label.setContentMode(getLabelContentMode());
+        label.setValue(toLabelValue(text));
+    }
+
+    private int getLabelContentMode() {
+        // Escaped and sanitized messages are HTML
+        if (msgContentMode == CONTENT_HTML_SANITIZED
+                || msgContentMode == CONTENT_TEXT_WITH_NEWLINES) {
+            return CONTENT_HTML;
+        }
+        return msgContentMode;
+    }
+
+    /**
+     * Format a message for the label in the current content mode.
+     */
+    private String toLabelValue(final String text) {
+        if (msgContentMode == CONTENT_TEXT_WITH_NEWLINES) {
+            return formatDialogMessage(text);
+        }
+        if (msgContentMode == CONTENT_HTML_SANITIZED) {
+            return htmlSanitizer.sanitize(text);
+        }
+        return text;
     }
 
     /**
      * Format the messageLabel by maintaining text only.
      * 
+     * Escapes the text and converts line breaks to HTML in a single pass.
+     * 
+     * @see MessageEscaper
      * @param text
      * @return
      */
     protected final String formatDialogMessage(final String text) {
-        return JsonPaintTarget.escapeXML(text).replaceAll("\n", "<br />");
+        return MessageEscaper.escape(text);
+    }
+
+    /**
+     * Clear the listener, the isConfirmed state and the lifecycle state so
+     * that the dialog can be shown again.
+     */
+    final void reset() {
+        confirmListener = null;
+        isConfirmed = false;
+        outcome = null;
+        expiryTime = 0;
+        shownAt = 0;
+        closedOpen();
+        state.set(State.CREATED);
+    }
+
+    /**
+     * Drop the listener of a closed dialog so that it is not kept alive by
+     * the dialog. The decision and the lifecycle state are kept.
+     */
+    final void releaseListener() {
+        confirmListener = null;
+    }
+
+    /**
+     * Enable the compact serialized form for a dialog built by the given
+     * factory.
+     * 
+     * Instead of the component tree, only the dialog itself with its
+     * caption, size, message, content mode, state and listener and the
+     * buttons with their layout are serialized. The other components are
+     * rebuilt with {@link DefaultConfirmDialogFactory#rebuild(ConfirmDialog)}
+     * when the whole session has been deserialized. Use this only for dialogs
+     * that the factory can fully recreate from these values.
+     * 
+     * The dialog keeps a single factory reference, shared with
+     * {@link #setSizingFactory(DefaultConfirmDialogFactory)}.
+     * 
+     * @param factory
+     *            Factory to rebuild the dialog or null to serialize the full
+     *            component tree.
+     */
+    protected final void setRebuildFactory(
+            final DefaultConfirmDialogFactory factory) {
+        rebuilt = factory != null;
+        useFactory(factory);
+    }
+
+    /**
+     * Set the factory estimating the dialog size from the message when the
+     * content mode is changed.
+     * 
+     * The dialog keeps a single factory reference, shared with
+     * {@link #setRebuildFactory(DefaultConfirmDialogFactory)}.
+     * 
+     * @param factory
+     *            Factory or null to keep the size.
+     */
+    protected final void setSizingFactory(
+            final DefaultConfirmDialogFactory factory) {
+        sized = factory != null;
+        useFactory(factory);
+    }
+
+    private void useFactory(final DefaultConfirmDialogFactory f) {
+        if (f != null) {
+            factory = f;
+        } else if (!rebuilt && !sized) {
+            factory = null;
+        }
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        // In the compact form the content is written as an empty layout.
+        // The buttons are kept as the client refers to them by their ids.
+        if (!rebuilt) {
+            out.writeObject(messageLabel);
+        }
+        out.writeObject(okBtn);
+        out.writeObject(cancelBtn);
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        if (!rebuilt) {
+            messageLabel = (Label) in.readObject();
+        }
+        okBtn = (Button) in.readObject();
+        cancelBtn = (Button) in.readObject();
+        if (!rebuilt) {
+            return;
+        }
+
+        // Attaching new components needs the parent window and the
+        // application, so rebuild only when the whole graph has been read
+        in.registerValidation(new ObjectInputValidation() {
+            public void validateObject() {
+                setContent(new Content());
+                factory.rebuild(ConfirmDialog.this);
+                applyContentMode();
+            }
+        }, 0);
+    }
+
+    /**
+     * Content layout of the dialog. It is written as an empty layout when
+     * the dialog uses the compact serialized form.
+     */
+    private static final class Content extends VerticalLayout {
+
+        private static final long serialVersionUID = -2140713213645541541L;
+
+        Content() {
+            setMargin(true);
+        }
+
+        private Object writeReplace() throws ObjectStreamException {
+            Component parent = getParent();
+            if (parent instanceof ConfirmDialog
+                    && ((ConfirmDialog) parent).rebuilt) {
+                return new VerticalLayout();
+            }
+            return this;
+        }
     }
 
     /**
@@ -0,0 +1,664 @@
+package org.vaadin.dialogs;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.vaadin.Application;
+import com.vaadin.service.ApplicationContext;
+import com.vaadin.ui.ProgressIndicator;
+import com.vaadin.ui.Window;
+
+/**
+ * Web application wide scheduler for confirmed actions.
+ *
+ * Limits the number of confirmed actions running at the same time across all
+ * sessions and queues the rest in a bounded queue. Each application can have
+ * only a limited number of actions in the shared pool, the rest of its actions
+ * wait in a queue of the application. While an action waits or runs, its
+ * dialog stays open showing a "queued" or "running" status and is closed when
+ * the action has finished.
+ *
+ * Actions that are rejected or discarded because a queue is full are reported
+ * to the {@link RejectionListener}. The dialog of a discarded action belongs
+ * to another session, so it is closed and reported in the next request of its
+ * own application.
+ *
+ * Enable with:
+ *
+ * <pre>
+ * ConfirmDialog.setActionScheduler(new ConfirmedActionScheduler(10, 100,
+ *         ConfirmedActionScheduler.RejectionPolicy.ABORT));
+ * </pre>
+ *
+ * Queue depth, running actions and wait times are exposed for monitoring.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class ConfirmedActionScheduler {
+
+    /**
+     * What to do with an action when the queue is full.
+     */
+    public enum RejectionPolicy {
+        /** Close the dialog and report the action as rejected. */
+        ABORT,
+        /** Run the action on the request thread. */
+        CALLER_RUNS,
+        /**
+         * Drop the oldest queued action, report it as rejected and queue the
+         * new one.
+         */
+        DISCARD_OLDEST
+    }
+
+    /**
+     * Listener for actions that were not run because a queue was full.
+     */
+    public interface RejectionListener extends Serializable {
+
+        /**
+         * Called in the session of the dialog while holding its application
+         * lock. The dialog has already been closed.
+         *
+         * @param dialog
+         *            The confirmed dialog.
+         * @param action
+         *            The action that was not run.
+         */
+        void actionRejected(ConfirmDialog dialog, Runnable action);
+    }
+
+    public static final String DEFAULT_QUEUED_CAPTION = "Queued...";
+    public static final String DEFAULT_RUNNING_CAPTION = "Running...";
+
+    private static final int POLLING_INTERVAL = 500;
+
+    private final ThreadPoolExecutor executor;
+    private final RejectionPolicy rejectionPolicy;
+    private final int maxPerApplication;
+    private final int queueCapacity;
+
+    // Removed when the actions of the application have finished or the
+    // application is closed
+    private final Map<Application, ApplicationSlot> slots = new HashMap<Application, ApplicationSlot>();
+
+    // Contexts notifying this scheduler of their transactions
+    private final Map<ApplicationContext, Boolean> contexts = new WeakHashMap<ApplicationContext, Boolean>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private volatile String queuedCaption = DEFAULT_QUEUED_CAPTION;
+    private volatile String runningCaption = DEFAULT_RUNNING_CAPTION;
+    private volatile RejectionListener rejectionListener;
+
+    /**
+     * @param maxConcurrent
+     *            Maximum number of actions running at the same time.
+     * @param queueCapacity
+     *            Maximum number of actions waiting to run.
+     * @param rejectionPolicy
+     *            What to do when the queue is full.
+     */
+    public ConfirmedActionScheduler(final int maxConcurrent,
+            final int queueCapacity, final RejectionPolicy rejectionPolicy) {
+        this(maxConcurrent, queueCapacity, rejectionPolicy, Executors
+                .defaultThreadFactory());
+    }
+
+    /**
+     * @param maxConcurrent
+     *            Maximum number of actions running at the same time.
+     * @param queueCapacity
+     *            Maximum number of actions waiting to run.
+     * @param rejectionPolicy
+     *            What to do when the queue is full.
+     * @param threadFactory
+     *            Factory for the worker threads.
+     */
+    public ConfirmedActionScheduler(final int maxConcurrent,
+            final int queueCapacity, final RejectionPolicy rejectionPolicy,
+            final ThreadFactory threadFactory) {
+        this(maxConcurrent, maxConcurrent, queueCapacity, rejectionPolicy,
+                threadFactory);
+    }
+
+    /**
+     * @param maxConcurrent
+     *            Maximum number of actions running at the same time.
+     * @param maxPerApplication
+     *            Maximum number of actions of one application running or
+     *            queued in the shared pool.
+     * @param queueCapacity
+     *            Maximum number of actions waiting to run in the shared pool
+     *            and in the queue of each application.
+     * @param rejectionPolicy
+     *            What to do when a queue is full.
+     * @param threadFactory
+     *            Factory for the worker threads.
+     */
+    public ConfirmedActionScheduler(final int maxConcurrent,
+            final int maxPerApplication, final int queueCapacity,
+            final RejectionPolicy rejectionPolicy,
+            final ThreadFactory threadFactory) {
+        if (maxConcurrent < 1 || maxPerApplication < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "Concurrency limits and queue capacity must be positive");
+        }
+        if (rejectionPolicy == null) {
+            throw new IllegalArgumentException(
+                    "Rejection policy cannot be null");
+        }
+        this.rejectionPolicy = rejectionPolicy;
+        this.maxPerApplication = maxPerApplication;
+        this.queueCapacity = queueCapacity;
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60L,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+                        queueCapacity), threadFactory, new Rejector());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedule a confirmed action. The dialog shows the status of the action
+     * in the parent window until the action has finished.
+     *
+     * @param parentWindow
+     *            Window the dialog was shown in.
+     * @param dialog
+     *            The confirmed dialog.
+     * @param action
+     *            Action to run.
+     */
+    void schedule(final Window parentWindow, final ConfirmDialog dialog,
+            final Runnable action) {
+        final ApplicationSlot slot = getSlot(parentWindow.getApplication());
+        final ScheduledAction task = new ScheduledAction(parentWindow, slot,
+                dialog, action);
+        showTaskStatus(task, queuedCaption);
+        queued.incrementAndGet();
+        if (!slot.waiting.offer(task)) {
+            // The application has too many actions waiting
+            rejected.incrementAndGet();
+            switch (rejectionPolicy) {
+            case CALLER_RUNS:
+                task.run();
+                break;
+            case DISCARD_OLDEST:
+                ScheduledAction oldest = slot.waiting.poll();
+                if (oldest != null) {
+                    discard(oldest);
+                }
+                if (!slot.waiting.offer(task)) {
+                    abort(task);
+                }
+                break;
+            default:
+                abort(task);
+            }
+        }
+        task.locked(new Runnable() {
+            public void run() {
+                update(slot);
+            }
+        });
+    }
+
+    /**
+     * Get the slot of an application for a new action, registering for the
+     * transactions of its context.
+     *
+     * @param application
+     *            Application or null if the window is not attached.
+     * @return
+     */
+    private ApplicationSlot getSlot(final Application application) {
+        synchronized (slots) {
+            ApplicationSlot slot = slots.get(application);
+            if (slot == null) {
+                slot = new ApplicationSlot(this, application);
+                slots.put(application, slot);
+            }
+            slot.actions++;
+
+            // The listener is never removed, as the context does not allow
+            // that while it notifies the listeners
+            ApplicationContext context = application == null ? null
+                    : application.getContext();
+            if (context != null && contexts.put(context, Boolean.TRUE) == null) {
+                context.addTransactionListener(new ContextListener(this));
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Count a finished action of an application and remove its slot when no
+     * more actions are left.
+     *
+     * @param slot
+     */
+    private void removeFinished(final ApplicationSlot slot) {
+        synchronized (slots) {
+            if (--slot.actions == 0 && slots.get(slot.application) == slot) {
+                slots.remove(slot.application);
+            }
+        }
+    }
+
+    /**
+     * Close and report the rejected actions of an application and submit its
+     * waiting actions at the start of its request.
+     *
+     * @param application
+     */
+    private void transactionStart(final Application application) {
+        ApplicationSlot slot;
+        synchronized (slots) {
+            slot = slots.get(application);
+        }
+        if (slot == null
+                || slot.done.isEmpty()
+                && (slot.waiting.isEmpty() || slot.permits.availablePermits() == 0)) {
+            return;
+        }
+        // Vaadin synchronizes the request handling on the application
+        synchronized (application) {
+            update(slot);
+        }
+    }
+
+    /**
+     * Forget the actions of an application that has been closed. The actions
+     * still running finish normally.
+     *
+     * @param application
+     */
+    private void transactionEnd(final Application application) {
+        if (!application.isRunning()) {
+            synchronized (slots) {
+                slots.remove(application);
+            }
+        }
+    }
+
+    /**
+     * Move the waiting actions of an application to the shared pool while it
+     * has permits.
+     *
+     * @param slot
+     */
+    private void submit(final ApplicationSlot slot) {
+        while (slot.permits.tryAcquire()) {
+            ScheduledAction task = slot.waiting.poll();
+            if (task == null) {
+                slot.permits.release();
+                return;
+            }
+            task.pooled = true;
+            executor.execute(task);
+            if (!task.pooled && task.slot.done.contains(task)) {
+                // Leave the rest waiting while the shared queue is full
+                return;
+            }
+        }
+    }
+
+    /**
+     * Close and report the rejected actions of an application and submit its
+     * waiting actions. Called holding the application lock.
+     *
+     * @param slot
+     */
+    private void update(final ApplicationSlot slot) {
+        ScheduledAction task;
+        while ((task = slot.done.poll()) != null) {
+            finished(task);
+            RejectionListener l = rejectionListener;
+            if (l != null) {
+                l.actionRejected(task.dialog, task.action);
+            }
+        }
+        submit(slot);
+    }
+
+    private void abort(final ScheduledAction task) {
+        queued.decrementAndGet();
+        task.release();
+        task.slot.done.add(task);
+    }
+
+    private void discard(final ScheduledAction task) {
+        discarded.incrementAndGet();
+        queued.decrementAndGet();
+        task.release();
+        task.slot.done.add(task);
+    }
+
+    /**
+     * Show the status of an action in its dialog.
+     *
+     * @param dialog
+     * @param status
+     */
+    protected void showStatus(final ConfirmDialog dialog, final String status) {
+        dialog.setMessage(status);
+    }
+
+    private void showTaskStatus(final ScheduledAction task,
+            final String status) {
+        ConfirmDialog d = task.dialog;
+        if (d.getParent() == null) {
+            // Keep the decided dialog open while waiting
+            d.getOkButton().setVisible(false);
+            d.getCancelButton().setVisible(false);
+            d.setClosable(false);
+            d.addComponent(task.progress);
+            task.parentWindow.addWindow(d);
+        }
+        showStatus(d, status);
+    }
+
+    private void finished(final ScheduledAction task) {
+        ConfirmDialog d = task.dialog;
+        d.removeComponent(task.progress);
+        d.getOkButton().setVisible(true);
+        d.getCancelButton().setVisible(true);
+        d.setClosable(true);
+        d.close();
+        removeFinished(task.slot);
+    }
+
+    /**
+     * Action waiting in the queue with its dialog.
+     */
+    private class ScheduledAction implements Runnable {
+
+        private final Window parentWindow;
+        private final ApplicationSlot slot;
+        private final ConfirmDialog dialog;
+        private final Runnable action;
+        private final Application application;
+        private final ProgressIndicator progress = new ProgressIndicator();
+        private final long queuedAt = System.nanoTime();
+
+        // Holds a permit of the application
+        private volatile boolean pooled;
+
+        ScheduledAction(Window parentWindow, ApplicationSlot slot,
+                ConfirmDialog dialog, Runnable action) {
+            this.parentWindow = parentWindow;
+            this.slot = slot;
+            this.dialog = dialog;
+            this.action = action;
+            application = parentWindow.getApplication();
+            progress.setIndeterminate(true);
+            progress.setPollingInterval(POLLING_INTERVAL);
+        }
+
+        public void run() {
+            queued.decrementAndGet();
+            long wait = System.nanoTime() - queuedAt;
+            started.incrementAndGet();
+            totalWaitNanos.addAndGet(wait);
+            long max;
+            while (wait > (max = maxWaitNanos.get())
+                    && !maxWaitNanos.compareAndSet(max, wait)) {
+                // retry
+            }
+
+            locked(new Runnable() {
+                public void run() {
+                    showTaskStatus(ScheduledAction.this, runningCaption);
+                }
+            });
+            try {
+                action.run();
+                completed.incrementAndGet();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                throw e;
+            } finally {
+                release();
+                locked(new Runnable() {
+                    public void run() {
+                        finished(ScheduledAction.this);
+                        update(slot);
+                    }
+                });
+            }
+        }
+
+        void release() {
+            if (pooled) {
+                pooled = false;
+                slot.permits.release();
+            }
+        }
+
+        void locked(Runnable r) {
+            if (application != null) {
+                new ApplicationExecutor(application).execute(r);
+            } else {
+                r.run();
+            }
+        }
+    }
+
+    /**
+     * Applies the rejection policy when the shared queue is full. This runs
+     * in the session of the new action, so the actions of other sessions are
+     * only marked here and closed in their own sessions.
+     */
+    private class Rejector implements RejectedExecutionHandler {
+
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+            rejected.incrementAndGet();
+            ScheduledAction task = (ScheduledAction) r;
+            switch (rejectionPolicy) {
+            case CALLER_RUNS:
+                task.run();
+                break;
+            case DISCARD_OLDEST:
+                ScheduledAction oldest = (ScheduledAction) e.getQueue().poll();
+                if (oldest != null) {
+                    discard(oldest);
+                }
+                e.execute(task);
+                break;
+            default:
+                abort(task);
+            }
+        }
+    }
+
+    /**
+     * Actions of one application. Held by the scheduler until the actions
+     * have finished, so the rejected actions are closed in the next request
+     * of the application.
+     */
+    private static final class ApplicationSlot {
+
+        private final Application application;
+        private final Semaphore permits;
+        private final Queue<ScheduledAction> waiting;
+        private final Queue<ScheduledAction> done = new ConcurrentLinkedQueue<ScheduledAction>();
+
+        // Scheduled actions not finished yet, guarded by the slots
+        private int actions;
+
+        ApplicationSlot(ConfirmedActionScheduler scheduler,
+                Application application) {
+            this.application = application;
+            permits = new Semaphore(scheduler.maxPerApplication);
+            waiting = new ArrayBlockingQueue<ScheduledAction>(
+                    scheduler.queueCapacity);
+        }
+    }
+
+    /**
+     * Transaction listener of an application context. The scheduler is not
+     * serialized, it lives only in this server.
+     */
+    private static final class ContextListener implements
+            ApplicationContext.TransactionListener {
+
+        private static final long serialVersionUID = 4810387426352150317L;
+
+        private final transient ConfirmedActionScheduler scheduler;
+
+        ContextListener(ConfirmedActionScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        public void transactionStart(final Application application,
+                final Object transactionData) {
+            if (scheduler != null) {
+                scheduler.transactionStart(application);
+            }
+        }
+
+        public void transactionEnd(final Application application,
+                final Object transactionData) {
+            if (scheduler != null) {
+                scheduler.transactionEnd(application);
+            }
+        }
+    }
+
+    /**
+     * Stop accepting new actions. Queued actions are still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    public int getMaxConcurrent() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getMaxPerApplication() {
+        return maxPerApplication;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Number of actions waiting to run in the shared and the application
+     * queues.
+     *
+     * @return
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Number of actions currently running.
+     *
+     * @return
+     */
+    public int getRunningCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Number of actions that did not fit in a queue.
+     *
+     * @return
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Number of queued actions dropped with the
+     * {@link RejectionPolicy#DISCARD_OLDEST} policy.
+     *
+     * @return
+     */
+    public long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    /**
+     * Average time the started actions waited in the queue.
+     *
+     * @return
+     */
+    public double getAverageWaitMillis() {
+        long n = started.get();
+        return n == 0 ? 0d : totalWaitNanos.get() / (n * 1000000d);
+    }
+
+    /**
+     * Longest time an action waited in the queue.
+     *
+     * @return
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1000000d;
+    }
+
+    public String getQueuedCaption() {
+        return queuedCaption;
+    }
+
+    public void setQueuedCaption(final String queuedCaption) {
+        this.queuedCaption = queuedCaption;
+    }
+
+    public String getRunningCaption() {
+        return runningCaption;
+    }
+
+    public void setRunningCaption(final String runningCaption) {
+        this.runningCaption = runningCaption;
+    }
+
+    public RejectionListener getRejectionListener() {
+        return rejectionListener;
+    }
+
+    /**
+     * Set the listener for actions that were not run.
+     *
+     * @param rejectionListener
+     */
+    public void setRejectionListener(final RejectionListener rejectionListener) {
+        this.rejectionListener = rejectionListener;
+    }
+}
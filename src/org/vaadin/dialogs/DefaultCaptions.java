@@ -0,0 +1,151 @@
+package org.vaadin.dialogs;
+
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Localized default captions and message of the confirmation dialog, and
+ * the captions of the {@link ItemSelection} and {@link PagedMessage} buttons.
+ *
+ * The captions are read from the ConfirmDialog resource bundle in this
+ * package. Add a ConfirmDialog_&lt;locale&gt;.properties file to the
+ * classpath to support more locales. Resolved caption sets are cached, so
+ * looking up the defaults for a locale costs a single map lookup.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public final class DefaultCaptions implements Serializable {
+
+    private static final long serialVersionUID = -4497651101298281787L;
+
+    static final String BUNDLE_NAME = "org.vaadin.dialogs.ConfirmDialog";
+
+    /** Maximum number of cached locales. */
+    static final int MAX_CACHED_LOCALES = 64;
+
+    /** English defaults used when no bundle is found. */
+    public static final DefaultCaptions ENGLISH = new DefaultCaptions(
+            DefaultConfirmDialogFactory.DEFAULT_CAPTION,
+            DefaultConfirmDialogFactory.DEFAULT_MESSAGE,
+            DefaultConfirmDialogFactory.DEFAULT_OK_CAPTION,
+            DefaultConfirmDialogFactory.DEFAULT_CANCEL_CAPTION,
+            ItemSelection.DEFAULT_SELECT_ALL_CAPTION,
+            ItemSelection.DEFAULT_SELECT_NONE_CAPTION,
+            PagedMessage.DEFAULT_SHOW_MORE_CAPTION);
+
+    private static final ConcurrentMap<Locale, DefaultCaptions> cache = new ConcurrentHashMap<Locale, DefaultCaptions>();
+
+    private final String caption;
+    private final String message;
+    private final String okCaption;
+    private final String cancelCaption;
+    private final String selectAllCaption;
+    private final String selectNoneCaption;
+    private final String showMoreCaption;
+
+    /**
+     * Captions with the English button captions of the item selection and
+     * the paged message.
+     */
+    public DefaultCaptions(final String caption, final String message,
+            final String okCaption, final String cancelCaption) {
+        this(caption, message, okCaption, cancelCaption,
+                ItemSelection.DEFAULT_SELECT_ALL_CAPTION,
+                ItemSelection.DEFAULT_SELECT_NONE_CAPTION,
+                PagedMessage.DEFAULT_SHOW_MORE_CAPTION);
+    }
+
+    public DefaultCaptions(final String caption, final String message,
+            final String okCaption, final String cancelCaption,
+            final String selectAllCaption, final String selectNoneCaption,
+            final String showMoreCaption) {
+        this.caption = caption;
+        this.message = message;
+        this.okCaption = okCaption;
+        this.cancelCaption = cancelCaption;
+        this.selectAllCaption = selectAllCaption;
+        this.selectNoneCaption = selectNoneCaption;
+        this.showMoreCaption = showMoreCaption;
+    }
+
+    /**
+     * Get the default captions for a locale.
+     *
+     * @param locale
+     *            Locale or null for the English defaults.
+     * @return
+     */
+    public static DefaultCaptions get(final Locale locale) {
+        if (locale == null) {
+            return ENGLISH;
+        }
+        DefaultCaptions captions = cache.get(locale);
+        if (captions == null) {
+            captions = load(locale);
+            if (cache.size() >= MAX_CACHED_LOCALES) {
+                cache.clear();
+            }
+            cache.put(locale, captions);
+        }
+        return captions;
+    }
+
+    private static DefaultCaptions load(final Locale locale) {
+        try {
+            // Fall back to the base bundle instead of the JVM default locale
+            ResourceBundle bundle = ResourceBundle.getBundle(BUNDLE_NAME,
+                    locale, ResourceBundle.Control
+                            .getNoFallbackControl(ResourceBundle.Control.FORMAT_PROPERTIES));
+            return new DefaultCaptions(bundle.getString("caption"),
+                    bundle.getString("message"), bundle.getString("ok"),
+                    bundle.getString("cancel"), getString(bundle,
+                            "selectAll", ENGLISH.selectAllCaption),
+                    getString(bundle, "selectNone", ENGLISH.selectNoneCaption),
+                    getString(bundle, "showMore", ENGLISH.showMoreCaption));
+        } catch (MissingResourceException e) {
+            return ENGLISH;
+        }
+    }
+
+    /**
+     * Get an optional caption, so that bundles added before the caption are
+     * still used.
+     */
+    private static String getString(final ResourceBundle bundle,
+            final String key, final String defaultValue) {
+        return bundle.containsKey(key) ? bundle.getString(key) : defaultValue;
+    }
+
+    public String getCaption() {
+        return caption;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getOkCaption() {
+        return okCaption;
+    }
+
+    public String getCancelCaption() {
+        return cancelCaption;
+    }
+
+    public String getSelectAllCaption() {
+        return selectAllCaption;
+    }
+
+    public String getSelectNoneCaption() {
+        return selectNoneCaption;
+    }
+
+    public String getShowMoreCaption() {
+        return showMoreCaption;
+    }
+}
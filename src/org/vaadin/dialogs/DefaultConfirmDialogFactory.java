@@ -1,12 +1,12 @@
 package org.vaadin.dialogs;
 
-import java.lang.reflect.Method;
-import java.text.NumberFormat;
 import java.util.Locale;
 
 import org.vaadin.dialogs.ConfirmDialog.Factory;
 
+import com.vaadin.Application;
 import com.vaadin.event.ShortcutAction.KeyCode;
+import com.vaadin.terminal.Sizeable;
 import com.vaadin.ui.Alignment;
 import com.vaadin.ui.Button;
 import com.vaadin.ui.Button.ClickEvent;
@@ -24,6 +24,10 @@ import com.vaadin.ui.themes.Reindeer;
  *
  * This supports text only content and tries to approximate the the dialog size.
  *
+ * Missing captions and message are replaced with the {@link DefaultCaptions}
+ * of the application locale, or of the factory locale if the dialog is
+ * created without an application.
+ *
  * TODO: Allow configuration of min and max sizes.
  *
  * @author Sami Ekblad
@@ -34,7 +38,7 @@ public class DefaultConfirmDialogFactory implements Factory {
     /** Generated serial UID. */
     private static final long serialVersionUID = -5412321247707480466L;
 
-    // System wide defaults
+    // English defaults, see DefaultCaptions
     protected static final String DEFAULT_CAPTION = "Confirm";
     protected static final String DEFAULT_MESSAGE = "Are You sure?";
     protected static final String DEFAULT_OK_CAPTION = "Ok";
@@ -47,37 +51,282 @@ public class DefaultConfirmDialogFactory implements Factory {
     private static final double MAX_HEIGHT = 30d;
     private static final double BUTTON_HEIGHT = 2.5;
 
-    public ConfirmDialog create(final String caption, final String message,
-            final String okCaption, final String cancelCaption) {
+    private DialogSizeEstimator sizeEstimator = new FontMetricSizeEstimator();
 
-        // Create a confirm dialog
-        final ConfirmDialog confirm = new ConfirmDialog();
-        confirm.setCaption(caption != null ? caption : DEFAULT_CAPTION);
+    private Locale locale;
 
-        // Close listener implementation
-        confirm.addListener(new Window.CloseListener() {
+    /** Close listener shared by all dialogs created by this factory. */
+    private final Window.CloseListener closeListener = new Window.CloseListener() {
 
-            private static final long serialVersionUID = 1971800928047045825L;
+        private static final long serialVersionUID = 1971800928047045825L;
 
-            public void windowClose(CloseEvent ce) {
+        public void windowClose(CloseEvent ce) {
+            ConfirmDialog confirm = (ConfirmDialog) ce.getWindow();
 
-                // Only process if still enabled
-                if (confirm.isEnabled()) {
-                    confirm.setEnabled(false); // avoid double processing
-                    confirm.setConfirmed(false);
-                    if (confirm.getListener() != null) {
-                        confirm.getListener().onClose(confirm);
-                    }
+            // Only process if not decided yet
+            if (confirm.decide(confirm.isExpiring() ? ConfirmDialog.Outcome.TIMED_OUT
+                    : ConfirmDialog.Outcome.CLOSED)) {
+                if (confirm.getListener() != null) {
+                    confirm.getListener().onClose(confirm);
+                }
+                confirm.setClosed();
+                dialogClosed(confirm);
+            }
+        }
+    };
+
+    /** Button listener shared by all dialogs created by this factory. */
+    private final Button.ClickListener clickListener = new Button.ClickListener() {
+        private static final long serialVersionUID = 3525060915814334881L;
+
+        public void buttonClick(ClickEvent event) {
+            ConfirmDialog confirm = getDialog(event.getButton());
+
+            // Decide either "OK" or "CANCEL". Only process if not decided
+            // yet.
+            if (confirm != null
+                    && confirm.decide(event.getButton() == confirm
+                            .getOkButton())) {
+                confirm.close();
+
+                // This has to be invoked as the window close listener
+                // ignores the already decided dialog.
+                if (confirm.getListener() != null) {
+                    confirm.getListener().onClose(confirm);
                 }
+                confirm.setClosed();
+                dialogClosed(confirm);
             }
-        });
 
-        // Create content
+        }
+
+    };
+
+    public ConfirmDialog create(final String caption, final String message,
+            final String okCaption, final String cancelCaption) {
+        long start = startCreate();
+        final ConfirmDialog confirm = createMessageDialog(caption, okCaption,
+                cancelCaption);
+        String m = message != null ? message : getDefaultCaptions(null)
+                .getMessage();
+        confirm.setMessage(m);
+
+        // Approximate the size of the dialog
+        setDialogSize(confirm, m);
+        return created(confirm, start);
+    }
+
+    /**
+     * Create a dialog with the default captions of an application.
+     *
+     * @param application
+     *            Application of the dialog or null for the factory locale
+     * @param caption
+     *            Window caption or null for default
+     * @param message
+     *            Message text or null for default
+     * @param okCaption
+     *            Button caption or null for default
+     * @param cancelCaption
+     *            Button caption or null for default
+     * @return
+     */
+    public ConfirmDialog create(final Application application,
+            final String caption, final String message,
+            final String okCaption, final String cancelCaption) {
+        DefaultCaptions defaults = getDefaultCaptions(application);
+        return create(caption != null ? caption : defaults.getCaption(),
+                message != null ? message : defaults.getMessage(),
+                okCaption != null ? okCaption : defaults.getOkCaption(),
+                cancelCaption != null ? cancelCaption : defaults
+                        .getCancelCaption());
+    }
+
+    /**
+     * Create a dialog with a template message. The fixed text of the template
+     * is escaped and measured only once.
+     *
+     * @see MessageTemplate
+     * @param caption
+     *            Window caption or null for default
+     * @param message
+     *            Message template
+     * @param params
+     *            Parameters inserted into the message
+     * @param okCaption
+     *            Button caption or null for default
+     * @param cancelCaption
+     *            Button caption or null for default
+     * @return
+     */
+    public ConfirmDialog create(final String caption,
+            final MessageTemplate message, final Object[] params,
+            final String okCaption, final String cancelCaption) {
+        long start = startCreate();
+        final ConfirmDialog confirm = createMessageDialog(caption, okCaption,
+                cancelCaption);
+        confirm.setMessage(message, params);
+        setDialogSize(confirm, message, params);
+        return created(confirm, start);
+    }
+
+    /**
+     * Create a dialog with a template message and the default captions of an
+     * application.
+     *
+     * @param application
+     *            Application of the dialog or null for the factory locale
+     * @param caption
+     *            Window caption or null for default
+     * @param message
+     *            Message template
+     * @param params
+     *            Parameters inserted into the message
+     * @param okCaption
+     *            Button caption or null for default
+     * @param cancelCaption
+     *            Button caption or null for default
+     * @return
+     */
+    public ConfirmDialog create(final Application application,
+            final String caption, final MessageTemplate message,
+            final Object[] params, final String okCaption,
+            final String cancelCaption) {
+        DefaultCaptions defaults = getDefaultCaptions(application);
+        return create(caption != null ? caption : defaults.getCaption(),
+                message, params, okCaption != null ? okCaption : defaults
+                        .getOkCaption(), cancelCaption != null ? cancelCaption
+                        : defaults.getCancelCaption());
+    }
+
+    /**
+     * Prepare a dialog to be shared by all sessions. The message is escaped
+     * and the dialog size estimated only once. Missing captions are taken
+     * from the default captions of the factory locale.
+     *
+     * @see #create(DialogTemplate)
+     * @param caption
+     *            Window caption or null for default
+     * @param message
+     *            Message text or null for default
+     * @param okCaption
+     *            Button caption or null for default
+     * @param cancelCaption
+     *            Button caption or null for default
+     * @return
+     */
+    public DialogTemplate createTemplate(final String caption,
+            final String message, final String okCaption,
+            final String cancelCaption) {
+        return createTemplate(locale, caption, message, okCaption,
+                cancelCaption);
+    }
+
+    /**
+     * Prepare a dialog to be shared by all sessions of a locale.
+     *
+     * @see #createTemplate(String, String, String, String)
+     * @param locale
+     *            Locale of the default captions or null for English
+     * @param caption
+     *            Window caption or null for default
+     * @param message
+     *            Message text or null for default
+     * @param okCaption
+     *            Button caption or null for default
+     * @param cancelCaption
+     *            Button caption or null for default
+     * @return
+     */
+    public DialogTemplate createTemplate(final Locale locale,
+            final String caption, final String message,
+            final String okCaption, final String cancelCaption) {
+        DefaultCaptions defaults = DefaultCaptions.get(locale);
+        String m = message != null ? message : defaults.getMessage();
+        double[] dim = getDialogDimensions(m,
+                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES);
+        return new DialogTemplate(caption != null ? caption
+                : defaults.getCaption(), m, okCaption != null ? okCaption
+                : defaults.getOkCaption(), cancelCaption != null ? cancelCaption
+                : defaults.getCancelCaption(), em(dim[0]), em(dim[1]));
+    }
+
+    /**
+     * Create a dialog from a shared template. The dialog references the
+     * captions and the escaped message of the template and uses its size.
+     *
+     * @param template
+     * @return
+     */
+    public ConfirmDialog create(final DialogTemplate template) {
+        long start = startCreate();
+        final ConfirmDialog confirm = createMessageDialog(
+                template.getCaption(), template.getOkCaption(),
+                template.getCancelCaption());
+        confirm.setMessage(template);
+        confirm.setWidth(template.getWidth(), Sizeable.UNITS_EM);
+        confirm.setHeight(template.getHeight(), Sizeable.UNITS_EM);
+        return created(confirm, start);
+    }
+
+    /**
+     * Create a dialog with an empty message label and the buttons.
+     */
+    private ConfirmDialog createMessageDialog(final String caption,
+            final String okCaption, final String cancelCaption) {
+
+        // Create a confirm dialog
+        final ConfirmDialog confirm = createDialog(caption);
+        VerticalLayout c = addMessageLabel(confirm);
+        addButtons(confirm, c, okCaption, cancelCaption);
+        return confirm;
+    }
+
+    /**
+     * Rebuild the components of a dialog deserialized in its compact form.
+     *
+     * The dialog has an empty content layout and keeps its caption, size,
+     * state, message and buttons. The buttons are still in the layout they
+     * were created in, and the client refers to them by their ids, so the
+     * layout is added back as is. The dialog renders its message to the new
+     * message label after this.
+     *
+     * @param confirm
+     *            Deserialized dialog
+     */
+    protected void rebuild(final ConfirmDialog confirm) {
+        VerticalLayout c = addMessageLabel(confirm);
+        c.addComponent(confirm.getOkButton().getParent());
+    }
+
+    /**
+     * Add the scrollable message label to a dialog.
+     *
+     * @return The content layout of the dialog
+     */
+    private VerticalLayout addMessageLabel(final ConfirmDialog confirm) {
+
         VerticalLayout c = (VerticalLayout) confirm.getContent();
+        Panel scroll = addScrollPanel(c);
+
+        // Always HTML, but escape
+        Label text = new Label("", Label.CONTENT_RAW);
+        scroll.addComponent(text);
+        confirm.setMessageLabel(text);
+        confirm.setResizable(false);
+        return c;
+    }
+
+    /**
+     * Set up the dialog content layout and add the panel for scrolling
+     * lengthy messages to it.
+     *
+     * @return The panel
+     */
+    private static Panel addScrollPanel(final VerticalLayout c) {
         c.setSizeFull();
         c.setSpacing(true);
 
-        // Panel for scrolling lengthty messages.
         Panel scroll = new Panel(new VerticalLayout());
         scroll.setScrollable(true);
         c.addComponent(scroll);
@@ -85,90 +334,329 @@ public class DefaultConfirmDialogFactory implements Factory {
         scroll.setHeight("100%");
         scroll.setStyleName(Reindeer.PANEL_LIGHT);
         c.setExpandRatio(scroll, 1f);
+        return scroll;
+    }
+
+    /**
+     * Create a dialog for a message given as lines. Only the first page of
+     * lines is rendered and the dialog is sized by it. The rest are rendered
+     * a page at a time with the "show more" button of the
+     * {@link PagedMessage}.
+     *
+     * Paged dialogs use the full serialized form and lines read from an
+     * iterator are not serialized.
+     *
+     * @param application
+     *            Application of the dialog or null for the factory locale
+     * @param caption
+     *            Window caption or null for default
+     * @param lines
+     *            Message lines
+     * @param pageSize
+     *            Number of lines rendered at a time
+     * @param okCaption
+     *            Button caption or null for default
+     * @param cancelCaption
+     *            Button caption or null for default
+     * @return
+     */
+    public ConfirmDialog createPaged(final Application application,
+            final String caption, final Iterable<String> lines,
+            final int pageSize, final String okCaption,
+            final String cancelCaption) {
+        long start = startCreate();
+        DefaultCaptions defaults = getDefaultCaptions(application);
+        final ConfirmDialog confirm = createDialog(caption != null ? caption
+                : defaults.getCaption());
+
+        // The lines cannot be rebuilt from the message
+        confirm.setRebuildFactory(null);
+
+        VerticalLayout c = (VerticalLayout) confirm.getContent();
+        Panel scroll = addScrollPanel(c);
+
+        PagedMessage paged = new PagedMessage(lines, pageSize);
+        paged.setShowMoreCaption(defaults.getShowMoreCaption());
+        scroll.addComponent(paged);
+        confirm.setMessageLabel(paged.getMessageLabel());
+        confirm.setMessage(paged.getFirstPage());
+
+        addButtons(confirm, c, okCaption != null ? okCaption : defaults
+                .getOkCaption(), cancelCaption != null ? cancelCaption
+                : defaults.getCancelCaption());
+
+        setDialogSize(confirm, paged.getFirstPage());
+        confirm.setResizable(false);
+
+        return created(confirm, start);
+    }
+
+    /**
+     * Create a dialog for confirming a batch of items. The message is shown
+     * above the {@link ItemSelection} of the items. Only the first page of
+     * items is rendered and the dialog is sized by it. The buttons of the
+     * selection are given the default captions of the application locale.
+     *
+     * @param application
+     *            Application of the dialog or null for the factory locale
+     * @param caption
+     *            Window caption or null for default
+     * @param message
+     *            Message shown above the items or null for none
+     * @param selection
+     *            Selection of the items
+     * @param okCaption
+     *            Button caption or null for default
+     * @param cancelCaption
+     *            Button caption or null for default
+     * @return
+     */
+    public ConfirmDialog createSelection(final Application application,
+            final String caption, final String message,
+            final ItemSelection<?> selection, final String okCaption,
+            final String cancelCaption) {
+        long start = startCreate();
+        DefaultCaptions defaults = getDefaultCaptions(application);
+        final ConfirmDialog confirm = createDialog(caption != null ? caption
+                : defaults.getCaption());
+
+        // The items cannot be rebuilt from the message and the size is
+        // estimated from the items as well
+        confirm.setRebuildFactory(null);
+        confirm.setSizingFactory(null);
+
+        VerticalLayout c = (VerticalLayout) confirm.getContent();
+        Panel scroll = addScrollPanel(c);
 
-        // Always HTML, but escape
         Label text = new Label("", Label.CONTENT_RAW);
         scroll.addComponent(text);
         confirm.setMessageLabel(text);
-        confirm.setMessage(message);
+        confirm.setMessage(message != null ? message : "");
+        selection.setSelectAllCaption(defaults.getSelectAllCaption());
+        selection.setSelectNoneCaption(defaults.getSelectNoneCaption());
+        selection.setShowMoreCaption(defaults.getShowMoreCaption());
+        scroll.addComponent(selection);
+
+        addButtons(confirm, c, okCaption != null ? okCaption : defaults
+                .getOkCaption(), cancelCaption != null ? cancelCaption
+                : defaults.getCancelCaption());
+
+        // Room for the select all and none buttons
+        String lines = selection.getFirstPage() + "\n\n";
+        setDialogSize(confirm, message != null ? message + "\n" + lines
+                : lines);
+        confirm.setResizable(false);
+
+        return created(confirm, start);
+    }
 
+    /**
+     * Add the button bar with the cancel and ok buttons to the dialog layout.
+     */
+    private void addButtons(final ConfirmDialog confirm,
+            final VerticalLayout c, final String okCaption,
+            final String cancelCaption) {
         HorizontalLayout buttons = new HorizontalLayout();
         c.addComponent(buttons);
         buttons.setSpacing(true);
 
-        buttons.setHeight(format(getButtonHeight()) + "em");
+        buttons.setHeight(em(getButtonHeight()), Sizeable.UNITS_EM);
         buttons.setWidth("100%");
         Label spacer = new Label("");
         buttons.addComponent(spacer);
         spacer.setWidth("100%");
         buttons.setExpandRatio(spacer, 1f);
 
-        final Button cancel = new Button(cancelCaption != null ? cancelCaption
-                : DEFAULT_CANCEL_CAPTION);
-        cancel.setData(false);
-        cancel.setClickShortcut(KeyCode.ESCAPE, null);
+        Button cancel = createCancelButton(confirm, cancelCaption);
         buttons.addComponent(cancel);
         buttons.setComponentAlignment(cancel, Alignment.MIDDLE_RIGHT);
+
+        Button ok = createOkButton(confirm, okCaption);
+        buttons.addComponent(ok);
+        buttons.setComponentAlignment(ok, Alignment.MIDDLE_RIGHT);
+    }
+
+    /**
+     * Create an empty dialog window listening to its close events.
+     *
+     * The dialog uses the compact serialized form and is rebuilt with
+     * {@link #create(String, String, String, String)} of this factory when
+     * deserialized.
+     *
+     * @param caption
+     *            Window caption or null for default
+     * @return
+     */
+    protected ConfirmDialog createDialog(final String caption) {
+        ConfirmDialog confirm = new ConfirmDialog();
+        confirm.setCaption(caption != null ? caption : getDefaultCaptions(
+                null).getCaption());
+
+        // Listeners are shared by all dialogs of this factory
+        confirm.addListener(closeListener);
+
+        // Serialize only the values needed to rebuild the dialog
+        confirm.setRebuildFactory(this);
+        confirm.setSizingFactory(this);
+        return confirm;
+    }
+
+    /**
+     * Create the cancel button of a dialog. The button is not added to any
+     * layout.
+     *
+     * @param confirm
+     * @param cancelCaption
+     *            Button caption or null for default
+     * @return
+     */
+    protected Button createCancelButton(final ConfirmDialog confirm,
+            final String cancelCaption) {
+        Button cancel = new Button(cancelCaption != null ? cancelCaption
+                : getDefaultCaptions(null).getCancelCaption());
+        cancel.setData(false);
+        cancel.setClickShortcut(KeyCode.ESCAPE, null);
+        cancel.addListener(clickListener);
         confirm.setCancelButton(cancel);
+        return cancel;
+    }
 
-        final Button ok = new Button(okCaption != null ? okCaption
-                : DEFAULT_OK_CAPTION);
+    /**
+     * Create the ok button of a dialog. The button is not added to any
+     * layout.
+     *
+     * @param confirm
+     * @param okCaption
+     *            Button caption or null for default
+     * @return
+     */
+    protected Button createOkButton(final ConfirmDialog confirm,
+            final String okCaption) {
+        Button ok = new Button(okCaption != null ? okCaption
+                : getDefaultCaptions(null).getOkCaption());
         ok.setData(true);
         ok.setClickShortcut(KeyCode.ENTER, null);
         ok.setStyleName(Reindeer.BUTTON_DEFAULT);
         ok.focus();
-        buttons.addComponent(ok);
-        buttons.setComponentAlignment(ok, Alignment.MIDDLE_RIGHT);
+        ok.addListener(clickListener);
         confirm.setOkButton(ok);
+        return ok;
+    }
 
-        // Create a listener for buttons
-        Button.ClickListener cb = new Button.ClickListener() {
-            private static final long serialVersionUID = 3525060915814334881L;
-
-            public void buttonClick(ClickEvent event) {
-                // Copy the button date to window for passing through either
-                // "OK" or "CANCEL". Only process id still enabled.
-                if (confirm.isEnabled()) {
-                    confirm.setEnabled(false); // Avoid double processing
-
-                    confirm.setConfirmed(event.getButton() == ok);
-
-                    // We need to cast this way, because of the backward
-                    // compatibility issue in 6.4 series.
-                    Component parent = confirm.getParent();
-                    if (parent instanceof Window) {
-                        try {
-                            Method m = Window.class.getDeclaredMethod(
-                                    "removeWindow", Window.class);
-                            m.invoke(parent, confirm);
-                        } catch (Exception e) {
-                            throw new RuntimeException("Failed to remove confirmation dialog from the parent window.", e);
-                        }
-                    }
-
-                    // This has to be invoked as the window.close
-                    // event is not fired when removed.
-                    if (confirm.getListener() != null) {
-                        confirm.getListener().onClose(confirm);
-                    }
-                }
-
-            }
+    /**
+     * Sets the dialog size approximated from the message in the content mode
+     * of the dialog.
+     *
+     * @param confirm
+     *            Dialog to resize
+     * @param message
+     *            Message string
+     */
+    protected void setDialogSize(final ConfirmDialog confirm,
+            final String message) {
+        double[] dim = getDialogDimensions(message, confirm.getContentMode());
+        confirm.setWidth(em(dim[0]), Sizeable.UNITS_EM);
+        confirm.setHeight(em(dim[1]), Sizeable.UNITS_EM);
+    }
 
-        };
-        cancel.addListener(cb);
-        ok.addListener(cb);
+    /**
+     * Sets the dialog size approximated from a template message.
+     *
+     * @param confirm
+     *            Dialog to resize
+     * @param message
+     *            Message template
+     * @param params
+     *            Parameters inserted into the message
+     */
+    protected void setDialogSize(final ConfirmDialog confirm,
+            final MessageTemplate message, final Object[] params) {
+        double[] dim = getDialogDimensions(message, params,
+                confirm.getContentMode());
+        confirm.setWidth(em(dim[0]), Sizeable.UNITS_EM);
+        confirm.setHeight(em(dim[1]), Sizeable.UNITS_EM);
+    }
 
-        // Approximate the size of the dialog
-        double[] dim = getDialogDimensions(message,
-                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES);
-        confirm.setWidth(format(dim[0]) + "em");
-        confirm.setHeight(format(dim[1]) + "em");
-        confirm.setResizable(false);
+    /**
+     * Get the start time of a dialog creation for {@link #created}.
+     *
+     * @return The current time in nanoseconds or 0 if the dialogs are not
+     *         instrumented.
+     */
+    protected static long startCreate() {
+        return ConfirmDialog.getInstrumentation() != null ? System.nanoTime()
+                : 0;
+    }
 
+    /**
+     * Report a new dialog to the {@link DialogInstrumentation}.
+     *
+     * @param confirm
+     *            The new dialog
+     * @param start
+     *            Start time from {@link #startCreate()}
+     * @return The dialog
+     */
+    protected static ConfirmDialog created(final ConfirmDialog confirm,
+            final long start) {
+        DialogInstrumentation hook = ConfirmDialog.getInstrumentation();
+        if (hook != null && start != 0) {
+            hook.dialogCreated(confirm, System.nanoTime() - start);
+        }
         return confirm;
     }
 
+    /**
+     * Find the dialog a button belongs to.
+     *
+     * @param button
+     * @return The dialog or null if the button is not in a dialog.
+     */
+    private static ConfirmDialog getDialog(final Component button) {
+        Component c = button.getParent();
+        while (c != null && !(c instanceof ConfirmDialog)) {
+            c = c.getParent();
+        }
+        return (ConfirmDialog) c;
+    }
+
+    /**
+     * Get the default captions and message of an application.
+     *
+     * @param application
+     *            Application of the dialog or null for the factory locale
+     * @return
+     */
+    protected DefaultCaptions getDefaultCaptions(final Application application) {
+        return DefaultCaptions.get(application != null ? application
+                .getLocale() : locale);
+    }
+
+    /**
+     * Locale of the default captions of dialogs created without an
+     * application.
+     *
+     * @return The locale or null for English.
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public void setLocale(final Locale locale) {
+        this.locale = locale;
+    }
+
+    /**
+     * Called after the dialog has been closed and its listener notified.
+     *
+     * The default implementation does nothing.
+     *
+     * @param confirm
+     *            The closed dialog
+     */
+    protected void dialogClosed(final ConfirmDialog confirm) {
+    }
+
 	protected double getButtonHeight() {
 		return BUTTON_HEIGHT;
 	}
@@ -176,43 +664,80 @@ public class DefaultConfirmDialogFactory implements Factory {
     /**
      * Approximates the dialog dimensions based on its message length.
      *
+     * The message area size is estimated by the {@link DialogSizeEstimator}
+     * of this factory within the minimum and maximum window size.
+     *
      * @param message
      *            Message string
+     * @param style
+     *            Message content mode
      * @return
      */
     protected double[] getDialogDimensions(String message, int style) {
+        double[] size = getSizeEstimator().estimate(message, style,
+                getMinWindowWidth(), getMaxWindowWidth(),
+                getMinWindowHeight(), getMaxWindowHeight());
+        return addMargins(size);
+    }
 
-        // Based on Reindeer style:
-        double chrW = 0.5d;
-        double chrH = 1.5d;
-        double length = chrW * message.length();
-        double rows = Math.ceil(length / getMaxWindowWidth());
-
-        // Estimate extra lines
-        if (style == ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES) {
-            rows += count("\n", message);
+    /**
+     * Approximates the dialog dimensions of a template message.
+     *
+     * A {@link FontMetricSizeEstimator} reuses the measured fixed text of the
+     * template. Other estimators are given the formatted message.
+     *
+     * @param message
+     *            Message template
+     * @param params
+     *            Parameters inserted into the message
+     * @param style
+     *            Message content mode
+     * @return
+     */
+    protected double[] getDialogDimensions(MessageTemplate message,
+            Object[] params, int style) {
+        DialogSizeEstimator estimator = getSizeEstimator();
+        if (!(estimator instanceof FontMetricSizeEstimator)) {
+            return getDialogDimensions(message.format(params), style);
         }
+        double[] size = ((FontMetricSizeEstimator) estimator).estimate(
+                message, params, style, getMinWindowWidth(),
+                getMaxWindowWidth(), getMinWindowHeight(),
+                getMaxWindowHeight());
+        return addMargins(size);
+    }
 
-        // System.out.println(message.length() + " = " + length + "em");
-        // System.out.println("Rows: " + (length / MAX_WIDTH) + " = " + rows);
-
-        // Obey maximum size
-        double width = Math.min(getMaxWindowWidth(), length);
-        double height = Math.ceil(Math.min(getMaxWindowHeight(), rows * chrH));
-
-        // Obey the minimum size
-        width = Math.max(width, getMinWindowWidth());
-        height = Math.max(height, getMinWindowHeight());
-
+    private static double[] addMargins(final double[] size) {
         // Based on Reindeer style:
         double btnHeight = 2.5d;
         double vmargin = 8d;
         double hmargin = 2d;
 
-        double[] res = new double[] { width + hmargin,
-                height + btnHeight + vmargin };
-        // System.out.println(res[0] + "," + res[1]);
-        return res;
+        return new double[] { size[0] + hmargin,
+                size[1] + btnHeight + vmargin };
+    }
+
+    /**
+     * Get the estimator used to approximate the message size.
+     *
+     * By default a {@link FontMetricSizeEstimator} is used.
+     *
+     * @return
+     */
+    public DialogSizeEstimator getSizeEstimator() {
+        return sizeEstimator;
+    }
+
+    /**
+     * Set the estimator used to approximate the message size.
+     *
+     * @param sizeEstimator
+     */
+    public void setSizeEstimator(final DialogSizeEstimator sizeEstimator) {
+        if (sizeEstimator == null) {
+            throw new IllegalArgumentException("Size estimator cannot be null");
+        }
+        this.sizeEstimator = sizeEstimator;
     }
 
 	protected double getMaxWindowWidth() {
@@ -232,34 +757,13 @@ public class DefaultConfirmDialogFactory implements Factory {
 	}
 
     /**
-     * Count the number of needles within a haystack.
-     *
-     * @param needle
-     *            The string to search for.
-     * @param haystack
-     *            The string to process.
-     * @return
-     */
-    private static int count(final String needle, final String haystack) {
-        int count = 0;
-        int pos = -1;
-        while ((pos = haystack.indexOf(needle, pos + 1)) >= 0) {
-            count++;
-        }
-        return count;
-    }
-
-    /**
-     * Format a double single fraction digit.
+     * Round a size to a single fraction digit.
      *
      * @param n
      * @return
      */
-    private String format(double n) {
-        NumberFormat nf = NumberFormat.getNumberInstance(Locale.ENGLISH);
-        nf.setMaximumFractionDigits(1);
-        nf.setGroupingUsed(false);
-        return nf.format(n);
+    private static float em(double n) {
+        return (float) (Math.rint(n * 10d) / 10d);
     }
 
 }
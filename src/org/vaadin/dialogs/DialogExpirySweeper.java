@@ -0,0 +1,181 @@
+package org.vaadin.dialogs;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.Application;
+
+/**
+ * Cancels the dialogs of an application that were not decided in time.
+ *
+ * Each application has one sweeper holding its dialogs ordered by deadline.
+ * The sweepers of all applications share a single daemon timer thread, and a
+ * sweeper is only scheduled for its earliest deadline. Applications and
+ * dialogs are held weakly, so a sweeper does not keep a closed session in
+ * memory.
+ *
+ * @author Sami Ekblad
+ *
+ */
+final class DialogExpirySweeper implements Runnable {
+
+    private static final Map<Application, DialogExpirySweeper> sweepers = Collections
+            .synchronizedMap(new WeakHashMap<Application, DialogExpirySweeper>());
+
+    private static ScheduledExecutorService timer;
+
+    private final WeakReference<Application> application;
+
+    // Guarded by this
+    private final PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+    private ScheduledFuture<?> next;
+    private long nextRun = Long.MAX_VALUE;
+
+    private DialogExpirySweeper(final Application application) {
+        this.application = new WeakReference<Application>(application);
+    }
+
+    /**
+     * Cancel the dialog if it has not been decided by its expiry time.
+     *
+     * @param application
+     *            Application of the dialog.
+     * @param dialog
+     *            Dialog with an expiry time.
+     */
+    static void schedule(final Application application,
+            final ConfirmDialog dialog) {
+        DialogExpirySweeper sweeper;
+        synchronized (sweepers) {
+            sweeper = sweepers.get(application);
+            if (sweeper == null) {
+                sweeper = new DialogExpirySweeper(application);
+                sweepers.put(application, sweeper);
+            }
+        }
+        sweeper.add(dialog, dialog.getExpiryTime());
+    }
+
+    /**
+     * Number of dialogs waiting for their deadline in an application.
+     *
+     * @param application
+     * @return
+     */
+    static int getScheduledCount(final Application application) {
+        DialogExpirySweeper sweeper = sweepers.get(application);
+        if (sweeper == null) {
+            return 0;
+        }
+        synchronized (sweeper) {
+            return sweeper.queue.size();
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            ScheduledThreadPoolExecutor t = new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r,
+                                    "ConfirmDialog expiry");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            t.setRemoveOnCancelPolicy(true);
+            timer = t;
+        }
+        return timer;
+    }
+
+    private synchronized void add(final ConfirmDialog dialog,
+            final long deadline) {
+        queue.add(new Entry(dialog, deadline));
+        if (deadline < nextRun) {
+            scheduleAt(deadline);
+        }
+    }
+
+    private void scheduleAt(final long deadline) {
+        if (next != null) {
+            next.cancel(false);
+        }
+        nextRun = deadline;
+        next = getTimer().schedule(this, deadline - System.currentTimeMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void run() {
+        Application app = application.get();
+        List<ConfirmDialog> expired = new ArrayList<ConfirmDialog>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            next = null;
+            nextRun = Long.MAX_VALUE;
+            while (!queue.isEmpty() && queue.peek().deadline <= now) {
+                Entry e = queue.poll();
+                ConfirmDialog d = e.get();
+                // Skip decided and reused dialogs
+                if (d != null && d.getExpiryTime() == e.deadline) {
+                    expired.add(d);
+                }
+            }
+            if (app == null) {
+                queue.clear();
+                return;
+            }
+            if (!queue.isEmpty()) {
+                scheduleAt(queue.peek().deadline);
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            // Vaadin synchronizes the request handling on the application
+            RuntimeException failure = null;
+            synchronized (app) {
+                for (ConfirmDialog d : expired) {
+                    try {
+                        d.expire();
+                    } catch (RuntimeException e) {
+                        // Expire the rest before reporting
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Dialog and its deadline.
+     */
+    private static final class Entry extends WeakReference<ConfirmDialog>
+            implements Comparable<Entry> {
+        private final long deadline;
+
+        Entry(ConfirmDialog dialog, long deadline) {
+            super(dialog);
+            this.deadline = deadline;
+        }
+
+        public int compareTo(Entry o) {
+            return deadline < o.deadline ? -1 : deadline == o.deadline ? 0
+                    : 1;
+        }
+    }
+}
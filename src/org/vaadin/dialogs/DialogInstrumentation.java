@@ -0,0 +1,70 @@
+package org.vaadin.dialogs;
+
+/**
+ * Hook receiving the lifecycle events of confirmation dialogs.
+ *
+ * Set an implementation with
+ * {@link ConfirmDialog#setInstrumentation(DialogInstrumentation)}. The
+ * methods are called on the request thread while the application is locked,
+ * so they must return quickly and never throw.
+ *
+ * @see DialogMetrics
+ * @author Sami Ekblad
+ *
+ */
+public interface DialogInstrumentation {
+
+    /**
+     * A dialog was created by a {@link DefaultConfirmDialogFactory}, or by
+     * another factory for one of the static show methods.
+     *
+     * @param dialog
+     *            The new dialog
+     * @param nanos
+     *            Time spent in the factory
+     */
+    void dialogCreated(ConfirmDialog dialog, long nanos);
+
+    /**
+     * A dialog was added to its parent window.
+     *
+     * @param dialog
+     *            The shown dialog
+     * @param nanos
+     *            Time spent showing the dialog
+     */
+    void dialogShown(ConfirmDialog dialog, long nanos);
+
+    /**
+     * A dialog and its components were painted to the client.
+     *
+     * @param dialog
+     *            The painted dialog
+     * @param nanos
+     *            Time spent painting
+     */
+    void dialogPainted(ConfirmDialog dialog, long nanos);
+
+    /**
+     * A shown dialog was decided.
+     *
+     * @param dialog
+     *            The decided dialog
+     * @param outcome
+     *            How the dialog was decided
+     * @param nanos
+     *            Time from showing the dialog to the decision
+     */
+    void dialogDecided(ConfirmDialog dialog, ConfirmDialog.Outcome outcome,
+            long nanos);
+
+    /**
+     * A dialog reported to {@link #dialogShown(ConfirmDialog, long)} of this
+     * instrumentation was closed or removed from its window. Called once per
+     * shown dialog, after the decision if the dialog was decided.
+     *
+     * @param dialog
+     *            The closed dialog
+     */
+    void dialogClosed(ConfirmDialog dialog);
+}
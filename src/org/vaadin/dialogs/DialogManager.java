@@ -0,0 +1,311 @@
+package org.vaadin.dialogs;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.vaadin.ui.Window;
+import com.vaadin.ui.Window.CloseEvent;
+
+/**
+ * Queues and coalesces the confirmation requests of a window.
+ *
+ * Requests with the same key, or the same message if no key is given, share
+ * one dialog and all their listeners are notified when it is closed. At most
+ * {@link #getMaxOpen()} dialogs are visible at a time; further requests wait
+ * in a bounded queue and their dialogs are created only when they are shown.
+ * This prevents double clicks and several event sources from stacking
+ * identical modal windows.
+ *
+ * <pre>
+ * DialogManager.forWindow(mainWindow).confirm(&quot;Delete the record?&quot;,
+ *         listener);
+ * </pre>
+ *
+ * The manager is a close listener of its window, so it is serialized with the
+ * session and kept only as long as the window. The managers are found by
+ * their windows through a weak registry. When the window is closed, the open
+ * and queued requests are closed and their listeners notified.
+ *
+ * Like Vaadin components, the manager is used while the application is
+ * locked.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class DialogManager implements Window.CloseListener {
+
+    private static final long serialVersionUID = 2436780617935530468L;
+
+    public static final int DEFAULT_MAX_OPEN = 1;
+    public static final int DEFAULT_MAX_QUEUED = 16;
+
+    // The windows keep their managers as close listeners
+    private static final Map<Window, WeakReference<DialogManager>> managers = Collections
+            .synchronizedMap(new WeakHashMap<Window, WeakReference<DialogManager>>());
+
+    private final Window window;
+    private boolean registered = false;
+    private int maxOpen = DEFAULT_MAX_OPEN;
+    private int maxQueued = DEFAULT_MAX_QUEUED;
+
+    private final Map<String, Request> open = new LinkedHashMap<String, Request>();
+    private final Map<String, Request> queued = new LinkedHashMap<String, Request>();
+
+    /**
+     * Get the manager of a window. A manager is created on first use.
+     *
+     * @param window
+     * @return
+     */
+    public static DialogManager forWindow(final Window window) {
+        synchronized (managers) {
+            WeakReference<DialogManager> ref = managers.get(window);
+            DialogManager m = ref == null ? null : ref.get();
+            if (m == null) {
+                m = new DialogManager(window);
+                m.register();
+            }
+            return m;
+        }
+    }
+
+    private void register() {
+        registered = true;
+        managers.put(window, new WeakReference<DialogManager>(this));
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        if (registered) {
+            register();
+        }
+    }
+
+    /**
+     * Create a manager for the dialogs of a window.
+     *
+     * @param window
+     *            Window the dialogs are shown in.
+     */
+    public DialogManager(final Window window) {
+        if (window == null) {
+            throw new IllegalArgumentException("Window cannot be null");
+        }
+        this.window = window;
+        window.addListener(this);
+    }
+
+    /**
+     * Request a confirmation coalesced by its message.
+     *
+     * @see #confirm(String, String, String, String, String,
+     *      ConfirmDialog.Listener)
+     * @param message
+     * @param listener
+     * @return
+     */
+    public ConfirmDialog confirm(final String message,
+            final ConfirmDialog.Listener listener) {
+        return confirm(null, null, message, null, null, listener);
+    }
+
+    /**
+     * Request a confirmation.
+     *
+     * If a request with the same key is open or queued, the listener is added
+     * to it. Otherwise the dialog is shown if less than the maximum number of
+     * dialogs are open, or queued.
+     *
+     * @param key
+     *            Key of duplicate requests or null to use the message.
+     * @param windowCaption
+     *            Caption for the confirmation dialog window.
+     * @param message
+     *            Message to display as window content.
+     * @param okCaption
+     *            Caption for the ok button.
+     * @param cancelCaption
+     *            Caption for cancel button.
+     * @param listener
+     *            Listener for dialog result.
+     * @return The visible dialog handling the request or null if the request
+     *         was queued.
+     * @throws RejectedExecutionException
+     *             if the queue is full
+     */
+    public ConfirmDialog confirm(final String key, final String windowCaption,
+            final String message, final String okCaption,
+            final String cancelCaption, final ConfirmDialog.Listener listener) {
+        String k = key != null ? key : message != null ? message : "";
+
+        Request r = open.get(k);
+        if (r != null) {
+            r.listeners.add(listener);
+            return r.dialog;
+        }
+        r = queued.get(k);
+        if (r != null) {
+            r.listeners.add(listener);
+            return null;
+        }
+
+        r = new Request(k, windowCaption, message, okCaption, cancelCaption);
+        r.listeners.add(listener);
+        if (open.size() < maxOpen) {
+            show(r);
+            return r.dialog;
+        }
+        if (queued.size() >= maxQueued) {
+            throw new RejectedExecutionException(
+                    "Too many confirmations queued");
+        }
+        queued.put(k, r);
+        return null;
+    }
+
+    private void show(final Request r) {
+        open.put(r.key, r);
+        r.dialog = ConfirmDialog.show(window, r.windowCaption, r.message,
+                r.okCaption, r.cancelCaption, r);
+    }
+
+    private void closed(final Request r) {
+        open.remove(r.key);
+
+        // Show the next requests before notifying, so that a listener
+        // requesting a new confirmation is queued behind them
+        Iterator<Request> i = queued.values().iterator();
+        while (open.size() < maxOpen && i.hasNext()) {
+            Request next = i.next();
+            i.remove();
+            show(next);
+        }
+    }
+
+    /**
+     * Number of visible dialogs.
+     *
+     * @return
+     */
+    public int getOpenCount() {
+        return open.size();
+    }
+
+    /**
+     * Number of requests waiting for a dialog.
+     *
+     * @return
+     */
+    public int getQueuedCount() {
+        return queued.size();
+    }
+
+    public Window getWindow() {
+        return window;
+    }
+
+    public int getMaxOpen() {
+        return maxOpen;
+    }
+
+    /**
+     * Set the maximum number of dialogs visible at a time.
+     *
+     * @param maxOpen
+     */
+    public void setMaxOpen(final int maxOpen) {
+        if (maxOpen < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.maxOpen = maxOpen;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    /**
+     * Set the maximum number of requests waiting for a dialog.
+     *
+     * @param maxQueued
+     */
+    public void setMaxQueued(final int maxQueued) {
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Close the open and queued requests of a closed window. The listeners
+     * are notified with the {@link ConfirmDialog.Outcome#CLOSED} outcome, the
+     * queued requests with a dialog that was never shown.
+     */
+    public void windowClose(final CloseEvent e) {
+        List<Request> requests = new ArrayList<Request>(open.values());
+        requests.addAll(queued.values());
+        open.clear();
+        queued.clear();
+        for (Request r : requests) {
+            if (r.dialog == null) {
+                r.dialog = ConfirmDialog.getFactoryRegistry()
+                        .getFactory(window.getApplication())
+                        .create(r.windowCaption, r.message, r.okCaption,
+                                r.cancelCaption);
+            }
+            if (r.dialog.decide(ConfirmDialog.Outcome.CLOSED)) {
+                r.notifyListeners(r.dialog);
+                r.dialog.setClosed();
+            }
+        }
+    }
+
+    /**
+     * Confirmation request with the listeners waiting for it.
+     */
+    private class Request implements ConfirmDialog.Listener {
+
+        private static final long serialVersionUID = -6108005305117355497L;
+
+        private final String key;
+        private final String windowCaption;
+        private final String message;
+        private final String okCaption;
+        private final String cancelCaption;
+        private final List<ConfirmDialog.Listener> listeners = new ArrayList<ConfirmDialog.Listener>(
+                1);
+        private ConfirmDialog dialog;
+
+        Request(String key, String windowCaption, String message,
+                String okCaption, String cancelCaption) {
+            this.key = key;
+            this.windowCaption = windowCaption;
+            this.message = message;
+            this.okCaption = okCaption;
+            this.cancelCaption = cancelCaption;
+        }
+
+        public void onClose(ConfirmDialog dialog) {
+            closed(this);
+            notifyListeners(dialog);
+        }
+
+        void notifyListeners(ConfirmDialog dialog) {
+            for (ConfirmDialog.Listener l : listeners) {
+                if (l != null) {
+                    l.onClose(dialog);
+                }
+            }
+        }
+    }
+}
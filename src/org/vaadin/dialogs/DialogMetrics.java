@@ -0,0 +1,263 @@
+package org.vaadin.dialogs;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of the dialog lifecycle, exported as a JMX
+ * MBean.
+ *
+ * Enable with:
+ *
+ * <pre>
+ * DialogMetrics.install();
+ * </pre>
+ *
+ * This registers the metrics as {@value #OBJECT_NAME} in the platform MBean
+ * server and sets them as the {@link DialogInstrumentation} of
+ * {@link ConfirmDialog}. Recording the latencies is lock-free and does not
+ * allocate, so the metrics can be left on in production.
+ *
+ * The open count is a gauge of the shown dialogs that have not been closed
+ * yet. A dialog decrements it once when it is closed or detached, also when
+ * its session expires, and {@link #reset()} keeps it. Dialogs shown before the
+ * metrics were installed and dialogs deserialized with a session are not
+ * counted.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class DialogMetrics implements DialogInstrumentation,
+        DialogMetricsMBean {
+
+    public static final String OBJECT_NAME = "org.vaadin.dialogs:type=DialogMetrics";
+
+    private final LatencyHistogram create = new LatencyHistogram();
+    private final LatencyHistogram show = new LatencyHistogram();
+    private final LatencyHistogram paint = new LatencyHistogram();
+    private final LatencyHistogram confirm = new LatencyHistogram();
+    private final LatencyHistogram cancel = new LatencyHistogram();
+    private final LatencyHistogram close = new LatencyHistogram();
+    private final LatencyHistogram timedOut = new LatencyHistogram();
+    private final AtomicLong open = new AtomicLong();
+
+    private ObjectName registeredName;
+
+    /**
+     * Create metrics, register them in the platform MBean server and start
+     * recording the dialog events.
+     *
+     * @return
+     * @throws JMException
+     *             if the registration fails
+     */
+    public static DialogMetrics install() throws JMException {
+        DialogMetrics metrics = new DialogMetrics();
+        metrics.register(ManagementFactory.getPlatformMBeanServer(),
+                new ObjectName(OBJECT_NAME));
+        ConfirmDialog.setInstrumentation(metrics);
+        return metrics;
+    }
+
+    /**
+     * Register the metrics in an MBean server.
+     *
+     * @param server
+     * @param name
+     * @throws JMException
+     */
+    public synchronized void register(final MBeanServer server,
+            final ObjectName name) throws JMException {
+        server.registerMBean(this, name);
+        registeredName = name;
+    }
+
+    /**
+     * Remove the metrics from the platform MBean server and stop recording
+     * if these are the current instrumentation.
+     *
+     * @throws JMException
+     */
+    public synchronized void uninstall() throws JMException {
+        if (ConfirmDialog.getInstrumentation() == this) {
+            ConfirmDialog.setInstrumentation(null);
+        }
+        if (registeredName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+                    registeredName);
+            registeredName = null;
+        }
+    }
+
+    public void dialogCreated(final ConfirmDialog dialog, final long nanos) {
+        create.record(nanos);
+    }
+
+    public void dialogShown(final ConfirmDialog dialog, final long nanos) {
+        show.record(nanos);
+        open.incrementAndGet();
+    }
+
+    public void dialogPainted(final ConfirmDialog dialog, final long nanos) {
+        paint.record(nanos);
+    }
+
+    public void dialogDecided(final ConfirmDialog dialog,
+            final ConfirmDialog.Outcome outcome, final long nanos) {
+        switch (outcome) {
+        case CONFIRMED:
+            confirm.record(nanos);
+            break;
+        case CANCELLED:
+            cancel.record(nanos);
+            break;
+        case TIMED_OUT:
+            timedOut.record(nanos);
+            break;
+        default:
+            close.record(nanos);
+        }
+    }
+
+    public void dialogClosed(final ConfirmDialog dialog) {
+        open.decrementAndGet();
+    }
+
+    public LatencyHistogram getCreateLatency() {
+        return create;
+    }
+
+    public LatencyHistogram getShowLatency() {
+        return show;
+    }
+
+    public LatencyHistogram getPaintLatency() {
+        return paint;
+    }
+
+    public LatencyHistogram getConfirmLatency() {
+        return confirm;
+    }
+
+    public LatencyHistogram getCancelLatency() {
+        return cancel;
+    }
+
+    public LatencyHistogram getCloseLatency() {
+        return close;
+    }
+
+    public long getCreatedCount() {
+        return create.getCount();
+    }
+
+    public long getShownCount() {
+        return show.getCount();
+    }
+
+    public long getConfirmedCount() {
+        return confirm.getCount();
+    }
+
+    public long getCancelledCount() {
+        return cancel.getCount();
+    }
+
+    public long getClosedCount() {
+        return close.getCount();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.getCount();
+    }
+
+    public long getOpenCount() {
+        return open.get();
+    }
+
+    public double getCreateMeanMillis() {
+        return create.getMeanMillis();
+    }
+
+    public double getCreateP99Millis() {
+        return create.getPercentileMillis(99);
+    }
+
+    public double getCreateMaxMillis() {
+        return create.getMaxMillis();
+    }
+
+    public double getShowMeanMillis() {
+        return show.getMeanMillis();
+    }
+
+    public double getShowP99Millis() {
+        return show.getPercentileMillis(99);
+    }
+
+    public double getShowMaxMillis() {
+        return show.getMaxMillis();
+    }
+
+    public double getPaintMeanMillis() {
+        return paint.getMeanMillis();
+    }
+
+    public double getPaintP99Millis() {
+        return paint.getPercentileMillis(99);
+    }
+
+    public double getPaintMaxMillis() {
+        return paint.getMaxMillis();
+    }
+
+    public double getConfirmMeanMillis() {
+        return confirm.getMeanMillis();
+    }
+
+    public double getConfirmP50Millis() {
+        return confirm.getPercentileMillis(50);
+    }
+
+    public double getConfirmP99Millis() {
+        return confirm.getPercentileMillis(99);
+    }
+
+    public double getCancelMeanMillis() {
+        return cancel.getMeanMillis();
+    }
+
+    public double getCancelP50Millis() {
+        return cancel.getPercentileMillis(50);
+    }
+
+    public double getCancelP99Millis() {
+        return cancel.getPercentileMillis(99);
+    }
+
+    public double getCloseMeanMillis() {
+        return close.getMeanMillis();
+    }
+
+    public double getCloseP50Millis() {
+        return close.getPercentileMillis(50);
+    }
+
+    public double getCloseP99Millis() {
+        return close.getPercentileMillis(99);
+    }
+
+    public void reset() {
+        create.reset();
+        show.reset();
+        paint.reset();
+        confirm.reset();
+        cancel.reset();
+        close.reset();
+        timedOut.reset();
+    }
+}
@@ -0,0 +1,73 @@
+package org.vaadin.dialogs;
+
+/**
+ * JMX management interface of {@link DialogMetrics}.
+ *
+ * Latencies are in milliseconds. Decision latencies are measured from
+ * showing the dialog to the user decision.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public interface DialogMetricsMBean {
+
+    long getCreatedCount();
+
+    long getShownCount();
+
+    long getConfirmedCount();
+
+    long getCancelledCount();
+
+    long getClosedCount();
+
+    long getTimedOutCount();
+
+    /**
+     * Number of dialogs shown but not decided yet.
+     *
+     * @return
+     */
+    long getOpenCount();
+
+    double getCreateMeanMillis();
+
+    double getCreateP99Millis();
+
+    double getCreateMaxMillis();
+
+    double getShowMeanMillis();
+
+    double getShowP99Millis();
+
+    double getShowMaxMillis();
+
+    double getPaintMeanMillis();
+
+    double getPaintP99Millis();
+
+    double getPaintMaxMillis();
+
+    double getConfirmMeanMillis();
+
+    double getConfirmP50Millis();
+
+    double getConfirmP99Millis();
+
+    double getCancelMeanMillis();
+
+    double getCancelP50Millis();
+
+    double getCancelP99Millis();
+
+    double getCloseMeanMillis();
+
+    double getCloseP50Millis();
+
+    double getCloseP99Millis();
+
+    /**
+     * Clear the counters and histograms. The open dialog count is kept.
+     */
+    void reset();
+}
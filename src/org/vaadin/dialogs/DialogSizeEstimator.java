@@ -0,0 +1,30 @@
+package org.vaadin.dialogs;
+
+import java.io.Serializable;
+
+/**
+ * Estimates the size needed to display a dialog message.
+ *
+ * Used by {@link DefaultConfirmDialogFactory} to size the dialog window.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public interface DialogSizeEstimator extends Serializable {
+
+    /**
+     * Estimate the size of the message area in em units.
+     *
+     * @param message
+     *            Message string. May be null.
+     * @param contentMode
+     *            One of the ConfirmDialog.CONTENT_* modes.
+     * @param minWidth
+     * @param maxWidth
+     * @param minHeight
+     * @param maxHeight
+     * @return Array of width and height within the given bounds.
+     */
+    double[] estimate(String message, int contentMode, double minWidth,
+            double maxWidth, double minHeight, double maxHeight);
+}
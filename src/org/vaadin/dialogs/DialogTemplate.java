@@ -0,0 +1,113 @@
+package org.vaadin.dialogs;
+
+import java.io.Serializable;
+
+/**
+ * Immutable dialog prepared once and shared by all sessions.
+ *
+ * A template holds the captions, the message and its escaped form, and the
+ * dialog size estimated by the factory that built it. Dialogs created from a
+ * template reference these values instead of escaping and measuring the
+ * message again and keeping their own copies. Templates are thread safe, so
+ * build them when the application starts and keep them in constants.
+ *
+ * <pre>
+ * static final DialogTemplate DELETE = new DefaultConfirmDialogFactory()
+ *         .createTemplate(&quot;Delete&quot;, &quot;Delete the record?&quot;, &quot;Delete&quot;,
+ *                 &quot;Cancel&quot;);
+ *
+ * ConfirmDialog.show(mainWindow, DELETE, listener);
+ * </pre>
+ *
+ * @see DefaultConfirmDialogFactory#createTemplate(String, String, String,
+ *      String)
+ * @author Sami Ekblad
+ *
+ */
+public final class DialogTemplate implements Serializable {
+
+    private static final long serialVersionUID = -2934118062917542410L;
+
+    private final String caption;
+    private final String message;
+    private final String escapedMessage;
+    private final String okCaption;
+    private final String cancelCaption;
+    private final float width;
+    private final float height;
+
+    /**
+     * @param caption
+     *            Window caption.
+     * @param message
+     *            Message text.
+     * @param okCaption
+     *            Caption for the ok button.
+     * @param cancelCaption
+     *            Caption for cancel button.
+     * @param width
+     *            Dialog width in em.
+     * @param height
+     *            Dialog height in em.
+     */
+    public DialogTemplate(final String caption, final String message,
+            final String okCaption, final String cancelCaption,
+            final float width, final float height) {
+        if (caption == null || message == null || okCaption == null
+                || cancelCaption == null) {
+            throw new IllegalArgumentException(
+                    "Captions and message cannot be null");
+        }
+        this.caption = caption;
+        this.message = message;
+        escapedMessage = MessageEscaper.escape(message);
+        this.okCaption = okCaption;
+        this.cancelCaption = cancelCaption;
+        this.width = width;
+        this.height = height;
+    }
+
+    public String getCaption() {
+        return caption;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Get the message escaped for display with the
+     * {@link ConfirmDialog#CONTENT_TEXT_WITH_NEWLINES} content mode.
+     *
+     * @return
+     */
+    public String getEscapedMessage() {
+        return escapedMessage;
+    }
+
+    public String getOkCaption() {
+        return okCaption;
+    }
+
+    public String getCancelCaption() {
+        return cancelCaption;
+    }
+
+    /**
+     * Dialog width in em.
+     *
+     * @return
+     */
+    public float getWidth() {
+        return width;
+    }
+
+    /**
+     * Dialog height in em.
+     *
+     * @return
+     */
+    public float getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,199 @@
+package org.vaadin.dialogs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.Window;
+
+/**
+ * Drives confirmation dialogs in tests without a browser.
+ *
+ * Finds the dialogs shown in a window and clicks their buttons or closes
+ * them by sending the same variable changes as the browser. The listeners
+ * are run through the same code paths as with real clicks, while holding
+ * the application lock like a request does. Works in plain JUnit without a
+ * servlet container.
+ *
+ * <pre>
+ * deleteButton.click();
+ * DialogTester.confirm(mainWindow);
+ * assertTrue(records.isEmpty());
+ * </pre>
+ *
+ * @author Sami Ekblad
+ *
+ */
+public final class DialogTester {
+
+    private DialogTester() {
+    }
+
+    /**
+     * Find the dialogs shown in a window in the order they were shown.
+     *
+     * @param window
+     *            Application level window or one of its sub windows.
+     * @return
+     */
+    public static List<ConfirmDialog> findDialogs(final Window window) {
+        Window top = window.getParent() != null ? window.getParent() : window;
+        List<ConfirmDialog> dialogs = new ArrayList<ConfirmDialog>();
+        for (Window w : top.getChildWindows()) {
+            if (w instanceof ConfirmDialog) {
+                dialogs.add((ConfirmDialog) w);
+            }
+        }
+        return dialogs;
+    }
+
+    /**
+     * Find the last dialog shown in a window.
+     *
+     * @param window
+     * @return
+     * @throws IllegalStateException
+     *             if no dialog is shown
+     */
+    public static ConfirmDialog findDialog(final Window window) {
+        List<ConfirmDialog> dialogs = findDialogs(window);
+        if (dialogs.isEmpty()) {
+            throw new IllegalStateException("No confirm dialog is shown");
+        }
+        return dialogs.get(dialogs.size() - 1);
+    }
+
+    /**
+     * Click the ok button of the last dialog shown in a window.
+     *
+     * @param window
+     * @return The clicked dialog.
+     */
+    public static ConfirmDialog confirm(final Window window) {
+        return confirm(findDialog(window));
+    }
+
+    /**
+     * Click the cancel button of the last dialog shown in a window.
+     *
+     * @param window
+     * @return The clicked dialog.
+     */
+    public static ConfirmDialog cancel(final Window window) {
+        return cancel(findDialog(window));
+    }
+
+    /**
+     * Close the last dialog shown in a window with its window close button.
+     *
+     * @param window
+     * @return The closed dialog.
+     */
+    public static ConfirmDialog close(final Window window) {
+        return close(findDialog(window));
+    }
+
+    /**
+     * Click the ok button of a dialog.
+     *
+     * @param dialog
+     * @return The given dialog.
+     */
+    public static ConfirmDialog confirm(final ConfirmDialog dialog) {
+        click(dialog, dialog.getOkButton());
+        return dialog;
+    }
+
+    /**
+     * Click the cancel button of a dialog.
+     *
+     * @param dialog
+     * @return The given dialog.
+     */
+    public static ConfirmDialog cancel(final ConfirmDialog dialog) {
+        click(dialog, dialog.getCancelButton());
+        return dialog;
+    }
+
+    /**
+     * Close a dialog with its window close button.
+     *
+     * @param dialog
+     * @return The given dialog.
+     */
+    public static ConfirmDialog close(final ConfirmDialog dialog) {
+        checkShown(dialog);
+        if (!dialog.isClosable()) {
+            throw new IllegalStateException("Dialog cannot be closed");
+        }
+        send(dialog, dialog, "close");
+        return dialog;
+    }
+
+    /**
+     * Decide a {@link ConfirmButton} like its dialog in the browser does.
+     *
+     * @param button
+     * @param confirmed
+     *            Was the ok button clicked.
+     */
+    public static void decide(final ConfirmButton button,
+            final boolean confirmed) {
+        if (!isUsable(button)) {
+            throw new IllegalStateException("Button cannot be clicked");
+        }
+        send(button.getApplication(), button, "confirmed", confirmed);
+    }
+
+    private static void click(final ConfirmDialog dialog, final Button button) {
+        checkShown(dialog);
+        if (button == null || !isUsable(button)) {
+            throw new IllegalStateException("Button cannot be clicked");
+        }
+        send(dialog, button, "state");
+    }
+
+    private static void checkShown(final ConfirmDialog dialog) {
+        if (!(dialog.getParent() instanceof Window)) {
+            throw new IllegalStateException("Dialog is not shown");
+        }
+    }
+
+    /**
+     * Check if the user can reach a component: it and its parents are
+     * visible and enabled.
+     */
+    private static boolean isUsable(final Component component) {
+        for (Component c = component; c != null; c = c.getParent()) {
+            if (!c.isVisible() || !c.isEnabled()) {
+                return false;
+            }
+        }
+        return component.getApplication() != null;
+    }
+
+    private static void send(final ConfirmDialog dialog,
+            final Component target, final String variable) {
+        send(dialog.getApplication(), target, variable, Boolean.TRUE);
+    }
+
+    private static void send(final Application application,
+            final Component target, final String variable, final Object value) {
+        Map<String, Object> variables = Collections.singletonMap(variable,
+                value);
+
+        if (application == null) {
+            target.changeVariables(target, variables);
+            return;
+        }
+
+        // Requests are handled while holding the application lock
+        synchronized (application) {
+            target.changeVariables(target, variables);
+        }
+    }
+}
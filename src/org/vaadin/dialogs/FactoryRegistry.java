@@ -0,0 +1,231 @@
+package org.vaadin.dialogs;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.vaadin.Application;
+
+/**
+ * Registry of dialog factories by application and locale.
+ *
+ * A factory is resolved in the following order:
+ * <ol>
+ * <li>factory registered for the application and locale,</li>
+ * <li>factory registered for the application and the language of the
+ * locale,</li>
+ * <li>factory registered for the application and any locale,</li>
+ * <li>factory registered for the locale or its language in any application,
+ * </li>
+ * <li>the default factory.</li>
+ * </ol>
+ *
+ * Lookups do not lock and cost a single volatile read when nothing has been
+ * registered. Applications are held weakly, so registrations do not keep
+ * closed applications in memory.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class FactoryRegistry {
+
+    private final AtomicReference<ConfirmDialog.Factory> defaultFactory = new AtomicReference<ConfirmDialog.Factory>();
+    private final ConcurrentMap<Key, ConfirmDialog.Factory> factories = new ConcurrentHashMap<Key, ConfirmDialog.Factory>();
+    private final ReferenceQueue<Application> released = new ReferenceQueue<Application>();
+
+    // Skip the map lookups until something is registered
+    private volatile boolean empty = true;
+
+    /**
+     * Get the default factory. A {@link DefaultConfirmDialogFactory} is
+     * created on first use.
+     *
+     * @return
+     */
+    public ConfirmDialog.Factory getDefaultFactory() {
+        ConfirmDialog.Factory f = defaultFactory.get();
+        if (f == null) {
+            defaultFactory.compareAndSet(null,
+                    new DefaultConfirmDialogFactory());
+            f = defaultFactory.get();
+        }
+        return f;
+    }
+
+    /**
+     * Set the default factory.
+     *
+     * @param factory
+     *            Factory or null to use a new {@link DefaultConfirmDialogFactory}
+     */
+    public void setDefaultFactory(final ConfirmDialog.Factory factory) {
+        defaultFactory.set(factory);
+    }
+
+    /**
+     * Register a factory.
+     *
+     * @param application
+     *            Application or null for all applications.
+     * @param locale
+     *            Locale or null for all locales.
+     * @param factory
+     *            Factory to use.
+     */
+    public void register(final Application application, final Locale locale,
+            final ConfirmDialog.Factory factory) {
+        if (factory == null) {
+            throw new IllegalArgumentException("Factory cannot be null");
+        }
+        if (application == null && locale == null) {
+            setDefaultFactory(factory);
+            return;
+        }
+        purge();
+        factories.put(new Key(application, locale, released), factory);
+        empty = false;
+    }
+
+    /**
+     * Remove a registered factory.
+     *
+     * @param application
+     * @param locale
+     */
+    public void unregister(final Application application, final Locale locale) {
+        purge();
+        factories.remove(new Key(application, locale, null));
+    }
+
+    /**
+     * Get the factory for an application using the application locale.
+     *
+     * @param application
+     *            Application or null.
+     * @return
+     */
+    public ConfirmDialog.Factory getFactory(final Application application) {
+        if (empty) {
+            return getDefaultFactory();
+        }
+        return getFactory(application,
+                application != null ? application.getLocale() : null);
+    }
+
+    /**
+     * Get the factory for an application and a locale.
+     *
+     * @param application
+     *            Application or null.
+     * @param locale
+     *            Locale or null.
+     * @return
+     */
+    public ConfirmDialog.Factory getFactory(final Application application,
+            final Locale locale) {
+        if (empty) {
+            return getDefaultFactory();
+        }
+        ConfirmDialog.Factory f = null;
+        if (application != null) {
+            f = lookup(application, locale);
+        }
+        if (f == null) {
+            f = lookup(null, locale);
+        }
+        return f != null ? f : getDefaultFactory();
+    }
+
+    private ConfirmDialog.Factory lookup(final Application application,
+            final Locale locale) {
+        ConfirmDialog.Factory f = null;
+        if (locale != null) {
+            f = factories.get(new Key(application, locale, null));
+            if (f == null && locale.getCountry().length() > 0) {
+                f = factories.get(new Key(application, new Locale(locale
+                        .getLanguage()), null));
+            }
+        }
+        if (f == null && application != null) {
+            f = factories.get(new Key(application, null, null));
+        }
+        return f;
+    }
+
+    /**
+     * Remove the registrations of garbage collected applications.
+     */
+    private void purge() {
+        Reference<? extends Application> ref;
+        while ((ref = released.poll()) != null) {
+            factories.remove(((ApplicationReference) ref).key);
+        }
+    }
+
+    /**
+     * Weak reference to the application of a registration.
+     */
+    private static final class ApplicationReference extends
+            WeakReference<Application> {
+        private Key key;
+
+        ApplicationReference(Application application,
+                ReferenceQueue<Application> queue) {
+            super(application, queue);
+        }
+    }
+
+    /**
+     * Registration key comparing applications by identity.
+     */
+    private static final class Key {
+        private final Object application;
+        private final Locale locale;
+        private final int hash;
+
+        Key(Application application, Locale locale,
+                ReferenceQueue<Application> queue) {
+            if (application != null && queue != null) {
+                ApplicationReference ref = new ApplicationReference(
+                        application, queue);
+                ref.key = this;
+                this.application = ref;
+            } else {
+                this.application = application;
+            }
+            this.locale = locale;
+            hash = 31 * System.identityHashCode(application)
+                    + (locale != null ? locale.hashCode() : 0);
+        }
+
+        private Object getApplication() {
+            return application instanceof ApplicationReference ? ((ApplicationReference) application)
+                    .get() : application;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) obj;
+            Object app = getApplication();
+            return hash == k.hash && app == k.getApplication()
+                    && (app != null || application == k.application)
+                    && (locale == null ? k.locale == null : locale
+                            .equals(k.locale));
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package org.vaadin.dialogs;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Default dialog size estimator.
+ *
+ * Measures the message using approximate character widths of the Reindeer
+ * theme font: narrow, normal, wide and CJK characters. HTML markup is ignored
+ * when measuring HTML content and line breaks are counted in the same single
+ * scan over the message.
+ *
+ * Estimates are memoized in a bounded cache, so repeated standard prompts are
+ * measured only once. The fixed text of a {@link MessageTemplate} is measured
+ * once as well and only its parameters are measured for each message.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class FontMetricSizeEstimator implements DialogSizeEstimator {
+
+    private static final long serialVersionUID = -1720916305316364208L;
+
+    /** Default number of cached estimates. */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    /** Messages longer than this are not cached. */
+    public static final int MAX_CACHED_LENGTH = 1024;
+
+    // Based on Reindeer style:
+    static final double CHAR_HEIGHT = 1.5d;
+    static final double NARROW = 0.3d;
+    static final double NORMAL = 0.5d;
+    static final double UPPER = 0.65d;
+    static final double WIDE = 0.85d;
+    static final double CJK = 1d;
+
+    private static final double[] ASCII_WIDTHS = new double[128];
+    static {
+        for (int c = 0; c < ASCII_WIDTHS.length; c++) {
+            if (c < ' ') {
+                ASCII_WIDTHS[c] = 0d;
+            } else if ("iljtfrI.,:;!|'`()[] ".indexOf(c) >= 0) {
+                ASCII_WIDTHS[c] = NARROW;
+            } else if ("mwMW@%".indexOf(c) >= 0) {
+                ASCII_WIDTHS[c] = WIDE;
+            } else if (c >= 'A' && c <= 'Z') {
+                ASCII_WIDTHS[c] = UPPER;
+            } else {
+                ASCII_WIDTHS[c] = NORMAL;
+            }
+        }
+    }
+
+    private final int cacheSize;
+
+    private transient Map<Key, double[]> cache;
+    private transient Map<MessageTemplate, Segment[][]> templateCache;
+
+    public FontMetricSizeEstimator() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize
+     *            Maximum number of cached estimates. Zero disables caching.
+     */
+    public FontMetricSizeEstimator(final int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public double[] estimate(final String message, final int contentMode,
+            final double minWidth, final double maxWidth,
+            final double minHeight, final double maxHeight) {
+        final String text = message != null ? message : "";
+        if (cacheSize <= 0 || text.length() > MAX_CACHED_LENGTH) {
+            return measure(text, contentMode, minWidth, maxWidth, minHeight,
+                    maxHeight);
+        }
+
+        Key key = new Key(text, contentMode, minWidth, maxWidth, minHeight,
+                maxHeight);
+        double[] size;
+        synchronized (this) {
+            size = getCache().get(key);
+        }
+        if (size == null) {
+            size = measure(text, contentMode, minWidth, maxWidth, minHeight,
+                    maxHeight);
+            synchronized (this) {
+                getCache().put(key, size);
+            }
+        }
+        return size.clone();
+    }
+
+    /**
+     * Measure the message without caching.
+     *
+     * @param message
+     * @param contentMode
+     * @param minWidth
+     * @param maxWidth
+     * @param minHeight
+     * @param maxHeight
+     * @return
+     */
+    protected double[] measure(final String message, final int contentMode,
+            final double minWidth, final double maxWidth,
+            final double minHeight, final double maxHeight) {
+        final boolean html = contentMode == ConfirmDialog.CONTENT_HTML
+                || contentMode == ConfirmDialog.CONTENT_HTML_SANITIZED;
+        final boolean newlines = contentMode == ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES
+                || contentMode == ConfirmDialog.CONTENT_PREFORMATTED;
+
+        double rows = 0d;
+        double line = 0d;
+        double widest = 0d;
+        final int len = message.length();
+        for (int i = 0; i < len; i++) {
+            final char c = message.charAt(i);
+            boolean lineBreak = false;
+            if (html && c == '<') {
+                int end = message.indexOf('>', i + 1);
+                if (end < 0) {
+                    end = len - 1;
+                }
+                lineBreak = isLineBreakTag(message, i + 1, end, line > 0d);
+                i = end;
+            } else if (html && c == '&') {
+                int end = message.indexOf(';', i + 1);
+                if (end > 0 && end - i <= 10) {
+                    i = end;
+                }
+                line += NORMAL;
+            } else if (c == '\n' || c == '\r') {
+                // "\r\n" is a single line break as in MessageEscaper
+                if (c == '\r' && i + 1 < len && message.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                if (newlines) {
+                    lineBreak = true;
+                } else {
+                    line += NARROW;
+                }
+            } else {
+                line += width(c);
+            }
+
+            if (lineBreak) {
+                rows += rows(line, maxWidth);
+                widest = Math.max(widest, line);
+                line = 0d;
+            }
+        }
+        if (line > 0d) {
+            rows += rows(line, maxWidth);
+            widest = Math.max(widest, line);
+        }
+
+        return bound(widest, rows, minWidth, maxWidth, minHeight, maxHeight);
+    }
+
+    /**
+     * Estimate the size of a template message.
+     *
+     * The widths of the fixed text are measured once per template and only
+     * the parameters are measured for each estimate. HTML templates are
+     * measured as formatted messages.
+     *
+     * @param template
+     * @param params
+     *            Parameter values.
+     * @param contentMode
+     * @param minWidth
+     * @param maxWidth
+     * @param minHeight
+     * @param maxHeight
+     * @return
+     */
+    public double[] estimate(final MessageTemplate template,
+            final Object[] params, final int contentMode,
+            final double minWidth, final double maxWidth,
+            final double minHeight, final double maxHeight) {
+        if (contentMode == ConfirmDialog.CONTENT_HTML
+                || contentMode == ConfirmDialog.CONTENT_HTML_SANITIZED) {
+            return estimate(template.format(params), contentMode, minWidth,
+                    maxWidth, minHeight, maxHeight);
+        }
+        final boolean newlines = contentMode == ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES
+                || contentMode == ConfirmDialog.CONTENT_PREFORMATTED;
+        final Segment[] segments = getSegments(template, newlines);
+
+        double rows = 0d;
+        double line = 0d;
+        double widest = 0d;
+        for (int i = 0; i < segments.length; i++) {
+            final Segment s = segments[i];
+            line += s.head;
+            if (s.lines != null) {
+                rows += rows(line, maxWidth);
+                widest = Math.max(widest, line);
+                for (double l : s.lines) {
+                    rows += rows(l, maxWidth);
+                    widest = Math.max(widest, l);
+                }
+                line = s.tail;
+            }
+            if (i < template.getParameterCount()) {
+                final String p = template.getParameter(i, params);
+                final int len = p.length();
+                for (int j = 0; j < len; j++) {
+                    final char c = p.charAt(j);
+                    if (c != '\n' && c != '\r') {
+                        line += width(c);
+                        continue;
+                    }
+                    if (c == '\r' && j + 1 < len && p.charAt(j + 1) == '\n') {
+                        j++;
+                    }
+                    if (newlines) {
+                        rows += rows(line, maxWidth);
+                        widest = Math.max(widest, line);
+                        line = 0d;
+                    } else {
+                        line += NARROW;
+                    }
+                }
+            }
+        }
+        if (line > 0d) {
+            rows += rows(line, maxWidth);
+            widest = Math.max(widest, line);
+        }
+        return bound(widest, rows, minWidth, maxWidth, minHeight, maxHeight);
+    }
+
+    private static double[] bound(final double widest, final double rows,
+            final double minWidth, final double maxWidth,
+            final double minHeight, final double maxHeight) {
+        // Obey maximum size
+        double width = Math.min(maxWidth, widest);
+        double height = Math.ceil(Math.min(maxHeight, rows * CHAR_HEIGHT));
+
+        // Obey the minimum size
+        width = Math.max(width, minWidth);
+        height = Math.max(height, minHeight);
+
+        return new double[] { width, height };
+    }
+
+    /**
+     * Approximate width of a character in em.
+     *
+     * @param c
+     * @return
+     */
+    protected double width(final char c) {
+        if (c < ASCII_WIDTHS.length) {
+            return ASCII_WIDTHS[c];
+        }
+        if ((c >= '\u1100' && c <= '\u115f') || (c >= '\u2e80' && c <= '\ua4cf')
+                || (c >= '\uac00' && c <= '\ud7a3')
+                || (c >= '\uf900' && c <= '\ufaff')
+                || (c >= '\ufe30' && c <= '\ufe4f')
+                || (c >= '\uff00' && c <= '\uff60')
+                || (c >= '\uffe0' && c <= '\uffe6')) {
+            return CJK;
+        }
+        if (Character.isLowSurrogate(c)) {
+            return 0d;
+        }
+        return Character.isUpperCase(c) ? UPPER : NORMAL;
+    }
+
+    private static double rows(final double lineWidth, final double maxWidth) {
+        return Math.max(1d, Math.ceil(lineWidth / maxWidth));
+    }
+
+    /**
+     * Check if a tag breaks the line. Tag content is between start
+     * (inclusive) and end (exclusive).
+     */
+    private static boolean isLineBreakTag(final String s, final int start,
+            final int end, final boolean lineHasText) {
+        if (start >= end) {
+            return false;
+        }
+        final boolean closing = s.charAt(start) == '/';
+        final int nameStart = closing ? start + 1 : start;
+        int nameEnd = nameStart;
+        while (nameEnd < end && Character.isLetterOrDigit(s.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        final int nameLen = nameEnd - nameStart;
+        if (nameLen == 2
+                && (s.regionMatches(true, nameStart, "br", 0, 2) || s
+                        .regionMatches(true, nameStart, "hr", 0, 2))) {
+            return true;
+        }
+        if (!lineHasText) {
+            return false;
+        }
+        if (nameLen == 1) {
+            return Character.toLowerCase(s.charAt(nameStart)) == 'p';
+        }
+        if (nameLen == 2) {
+            char c0 = Character.toLowerCase(s.charAt(nameStart));
+            char c1 = Character.toLowerCase(s.charAt(nameStart + 1));
+            return (c0 == 'l' && c1 == 'i') || (c0 == 't' && c1 == 'r')
+                    || (c0 == 'u' && c1 == 'l') || (c0 == 'o' && c1 == 'l')
+                    || (c0 == 'h' && c1 >= '1' && c1 <= '6');
+        }
+        return nameLen == 3 && s.regionMatches(true, nameStart, "div", 0, 3)
+                || nameLen == 5
+                && s.regionMatches(true, nameStart, "table", 0, 5);
+    }
+
+    /**
+     * Get the measured fixed text of a template.
+     */
+    private Segment[] getSegments(final MessageTemplate template,
+            final boolean newlines) {
+        final int mode = newlines ? 1 : 0;
+        if (cacheSize <= 0) {
+            return measureSegments(template, newlines);
+        }
+        synchronized (this) {
+            if (templateCache == null) {
+                templateCache = new LinkedHashMap<MessageTemplate, Segment[][]>(
+                        16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<MessageTemplate, Segment[][]> eldest) {
+                        return size() > cacheSize;
+                    }
+                };
+            }
+            Segment[][] cached = templateCache.get(template);
+            if (cached != null && cached[mode] != null) {
+                return cached[mode];
+            }
+        }
+
+        final Segment[] segments = measureSegments(template, newlines);
+        synchronized (this) {
+            Segment[][] cached = templateCache.get(template);
+            if (cached == null) {
+                cached = new Segment[2][];
+                templateCache.put(template, cached);
+            }
+            cached[mode] = segments;
+        }
+        return segments;
+    }
+
+    private Segment[] measureSegments(final MessageTemplate template,
+            final boolean newlines) {
+        final Segment[] segments = new Segment[template.getParameterCount() + 1];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(template.getSegment(i), newlines);
+        }
+        return segments;
+    }
+
+    private Map<Key, double[]> getCache() {
+        if (cache == null) {
+            cache = new LinkedHashMap<Key, double[]>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Key, double[]> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+        }
+        return cache;
+    }
+
+    /**
+     * Measured fixed text of a template between two parameters.
+     */
+    private final class Segment {
+        /** Width of the text before the first line break. */
+        private final double head;
+        /** Widths of the full lines or null if there are no line breaks. */
+        private final double[] lines;
+        /** Width of the text after the last line break. */
+        private final double tail;
+
+        Segment(final String text, final boolean newlines) {
+            double line = 0d;
+            double first = -1d;
+            double[] full = new double[0];
+            final int len = text.length();
+            for (int i = 0; i < len; i++) {
+                final char c = text.charAt(i);
+                if (c != '\n' && c != '\r') {
+                    line += width(c);
+                    continue;
+                }
+                if (c == '\r' && i + 1 < len && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                if (!newlines) {
+                    line += NARROW;
+                } else if (first < 0d) {
+                    first = line;
+                    line = 0d;
+                } else {
+                    full = Arrays.copyOf(full, full.length + 1);
+                    full[full.length - 1] = line;
+                    line = 0d;
+                }
+            }
+            if (first < 0d) {
+                head = line;
+                lines = null;
+                tail = 0d;
+            } else {
+                head = first;
+                lines = full;
+                tail = line;
+            }
+        }
+    }
+
+    /**
+     * Cache key of an estimate.
+     */
+    private static final class Key {
+        private final String message;
+        private final int contentMode;
+        private final double minWidth;
+        private final double maxWidth;
+        private final double minHeight;
+        private final double maxHeight;
+        private final int hash;
+
+        Key(String message, int contentMode, double minWidth,
+                double maxWidth, double minHeight, double maxHeight) {
+            this.message = message;
+            this.contentMode = contentMode;
+            this.minWidth = minWidth;
+            this.maxWidth = maxWidth;
+            this.minHeight = minHeight;
+            this.maxHeight = maxHeight;
+            int h = message.hashCode();
+            h = 31 * h + contentMode;
+            h = 31 * h + Double.hashCode(minWidth);
+            h = 31 * h + Double.hashCode(maxWidth);
+            h = 31 * h + Double.hashCode(minHeight);
+            h = 31 * h + Double.hashCode(maxHeight);
+            hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) obj;
+            return hash == k.hash && contentMode == k.contentMode
+                    && minWidth == k.minWidth && maxWidth == k.maxWidth
+                    && minHeight == k.minHeight && maxHeight == k.maxHeight
+                    && message.equals(k.message);
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package org.vaadin.dialogs;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Allowlist HTML sanitizer for dialog messages.
+ *
+ * Streams over the message once without building a DOM. Allowed elements
+ * are written again with only their allowed attributes and quoted, escaped
+ * values. Other tags, comments and the content of script and style elements
+ * are removed, and the remaining text is escaped. Closing tags are balanced
+ * and links only accept http, https, mailto and relative addresses.
+ *
+ * The allowlist is compiled from a list of element names, each optionally
+ * followed by its attributes in brackets:
+ *
+ * <pre>
+ * new HtmlSanitizer(&quot;a[href|title],b,i,br,ul,li&quot;)
+ * </pre>
+ *
+ * Sanitizers are immutable and thread safe. Results of recent messages are
+ * cached, so a repeated message is sanitized only once.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public final class HtmlSanitizer implements Serializable {
+
+    private static final long serialVersionUID = 4458129386018405467L;
+
+    /** Basic text formatting, lists and links. */
+    public static final String DEFAULT_ALLOWLIST = "a[href|title],b,blockquote,"
+            + "br,code,div,em,h1,h2,h3,h4,h5,h6,hr,i,li,ol,p,pre,s,small,span,"
+            + "strong,sub,sup,u,ul";
+
+    public static final HtmlSanitizer DEFAULT = new HtmlSanitizer(
+            DEFAULT_ALLOWLIST);
+
+    /** Maximum number of cached results. */
+    static final int MAX_CACHED_RESULTS = 256;
+
+    /** Messages longer than this are not cached. */
+    static final int MAX_CACHED_LENGTH = 4096;
+
+    private static final Set<String> VOID_ELEMENTS = new HashSet<String>(
+            Arrays.asList("br", "hr", "img", "wbr"));
+
+    // Content of these is not markup and is removed with the element
+    private static final Set<String> RAW_TEXT_ELEMENTS = new HashSet<String>(
+            Arrays.asList("script", "style", "textarea", "title", "xmp"));
+
+    private static final Set<String> URL_ATTRIBUTES = new HashSet<String>(
+            Arrays.asList("href", "src", "cite", "action"));
+
+    private static final Set<String> URL_SCHEMES = new HashSet<String>(
+            Arrays.asList("http", "https", "mailto"));
+
+    private final String allowlist;
+    private final transient Map<String, Set<String>> elements;
+    private final transient ConcurrentMap<String, String> cache = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Compile an allowlist.
+     *
+     * @param allowlist
+     *            Comma separated element names with their allowed attributes
+     *            separated by '|' in brackets, e.g. "a[href|title],b,br".
+     */
+    public HtmlSanitizer(final String allowlist) {
+        if (allowlist == null) {
+            throw new IllegalArgumentException("Allowlist cannot be null");
+        }
+        this.allowlist = allowlist;
+        Map<String, Set<String>> e = new HashMap<String, Set<String>>();
+        for (String entry : allowlist.split(",")) {
+            entry = entry.trim();
+            if (entry.length() == 0) {
+                continue;
+            }
+            Set<String> attributes = new HashSet<String>();
+            int bracket = entry.indexOf('[');
+            if (bracket >= 0) {
+                int end = entry.indexOf(']', bracket);
+                if (end < 0) {
+                    throw new IllegalArgumentException(
+                            "Missing ] in allowlist entry: " + entry);
+                }
+                for (String a : entry.substring(bracket + 1, end).split("\\|")) {
+                    if (a.trim().length() > 0) {
+                        attributes.add(a.trim().toLowerCase(Locale.ENGLISH));
+                    }
+                }
+                entry = entry.substring(0, bracket).trim();
+            }
+            e.put(entry.toLowerCase(Locale.ENGLISH), attributes);
+        }
+        elements = Collections.unmodifiableMap(e);
+    }
+
+    /**
+     * Sanitize a message.
+     *
+     * @param html
+     *            HTML message. May be null.
+     * @return Sanitized message, empty string for null.
+     */
+    public String sanitize(final String html) {
+        if (html == null) {
+            return "";
+        }
+        if (html.length() > MAX_CACHED_LENGTH) {
+            return sanitize(html, new StringBuilder(html.length() + 16))
+                    .toString();
+        }
+        String result = cache.get(html);
+        if (result == null) {
+            result = sanitize(html, new StringBuilder(html.length() + 16))
+                    .toString();
+            if (cache.size() >= MAX_CACHED_RESULTS) {
+                cache.clear();
+            }
+            cache.put(html, result);
+        }
+        return result;
+    }
+
+    /**
+     * Sanitize a message to the given buffer without caching.
+     *
+     * @param html
+     *            HTML message.
+     * @param sb
+     *            Buffer to append to.
+     * @return The given buffer.
+     */
+    public StringBuilder sanitize(final CharSequence html,
+            final StringBuilder sb) {
+        final List<String> open = new ArrayList<String>();
+        final int len = html.length();
+        int i = 0;
+        while (i < len) {
+            final char c = html.charAt(i);
+            if (c == '<') {
+                i = tag(html, i, sb, open);
+            } else if (c == '&') {
+                int end = entityEnd(html, i);
+                if (end > 0) {
+                    sb.append(html, i, end);
+                    i = end;
+                } else {
+                    sb.append("&amp;");
+                    i++;
+                }
+            } else if (c == '>') {
+                sb.append("&gt;");
+                i++;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        for (int j = open.size() - 1; j >= 0; j--) {
+            sb.append("</").append(open.get(j)).append('>');
+        }
+        return sb;
+    }
+
+    /**
+     * Handle markup starting with '&lt;' at the given index.
+     *
+     * @return Index after the markup.
+     */
+    private int tag(final CharSequence s, final int start,
+            final StringBuilder sb, final List<String> open) {
+        final int len = s.length();
+        int i = start + 1;
+        if (i < len && (s.charAt(i) == '!' || s.charAt(i) == '?')) {
+            // Comment, doctype or processing instruction
+            int end = startsWith(s, i, "!--") ? indexOf(s, "-->", i + 3)
+                    : indexOf(s, ">", i);
+            return end < 0 ? len : end + (startsWith(s, i, "!--") ? 3 : 1);
+        }
+        final boolean closing = i < len && s.charAt(i) == '/';
+        if (closing) {
+            i++;
+        }
+        final int nameStart = i;
+        while (i < len && isNameChar(s.charAt(i))) {
+            i++;
+        }
+        if (i == nameStart || !Character.isLetter(s.charAt(nameStart))) {
+            // Not a tag
+            sb.append("&lt;");
+            return start + 1;
+        }
+        final String name = s.subSequence(nameStart, i).toString()
+                .toLowerCase(Locale.ENGLISH);
+        final Set<String> attributes = elements.get(name);
+        final boolean emit = attributes != null && !closing;
+        final int mark = sb.length();
+        if (emit) {
+            sb.append('<').append(name);
+        }
+
+        // Attributes
+        while (true) {
+            while (i < len
+                    && (Character.isWhitespace(s.charAt(i)) || s.charAt(i) == '/')) {
+                i++;
+            }
+            if (i >= len) {
+                // Unterminated tag
+                sb.setLength(mark);
+                return len;
+            }
+            if (s.charAt(i) == '>') {
+                i++;
+                break;
+            }
+            final int attrStart = i;
+            while (i < len && !Character.isWhitespace(s.charAt(i))
+                    && "=>/".indexOf(s.charAt(i)) < 0) {
+                i++;
+            }
+            final int attrEnd = i;
+            while (i < len && Character.isWhitespace(s.charAt(i))) {
+                i++;
+            }
+            int valueStart = -1;
+            int valueEnd = -1;
+            if (i < len && s.charAt(i) == '=') {
+                i++;
+                while (i < len && Character.isWhitespace(s.charAt(i))) {
+                    i++;
+                }
+                if (i < len && (s.charAt(i) == '"' || s.charAt(i) == '\'')) {
+                    final char q = s.charAt(i);
+                    valueStart = i + 1;
+                    int end = indexOf(s, String.valueOf(q), valueStart);
+                    valueEnd = end < 0 ? len : end;
+                    i = end < 0 ? len : end + 1;
+                } else {
+                    valueStart = i;
+                    while (i < len && !Character.isWhitespace(s.charAt(i))
+                            && s.charAt(i) != '>') {
+                        i++;
+                    }
+                    valueEnd = i;
+                }
+            }
+            if (emit && attrEnd > attrStart) {
+                String attr = s.subSequence(attrStart, attrEnd).toString()
+                        .toLowerCase(Locale.ENGLISH);
+                if (attributes.contains(attr)) {
+                    attribute(sb, attr, s, valueStart, valueEnd);
+                }
+            }
+        }
+
+        if (!closing && RAW_TEXT_ELEMENTS.contains(name)) {
+            sb.setLength(mark);
+            int end = indexOfIgnoreCase(s, "</" + name, i);
+            if (end < 0) {
+                return len;
+            }
+            end = indexOf(s, ">", end);
+            return end < 0 ? len : end + 1;
+        }
+        if (emit) {
+            if (VOID_ELEMENTS.contains(name)) {
+                sb.append(" />");
+            } else {
+                sb.append('>');
+                open.add(name);
+            }
+        } else if (closing && open.contains(name)) {
+            // Close the elements left open inside this one
+            String top;
+            do {
+                top = open.remove(open.size() - 1);
+                sb.append("</").append(top).append('>');
+            } while (!top.equals(name));
+        }
+        return i;
+    }
+
+    private static void attribute(final StringBuilder sb, final String name,
+            final CharSequence s, final int valueStart, final int valueEnd) {
+        if (URL_ATTRIBUTES.contains(name)
+                && (valueStart < 0 || !isSafeUrl(s, valueStart, valueEnd))) {
+            return;
+        }
+        sb.append(' ').append(name).append("=\"");
+        for (int i = valueStart; i >= 0 && i < valueEnd; i++) {
+            final char c = s.charAt(i);
+            if (c == '&') {
+                int end = entityEnd(s, i);
+                if (end > 0 && end <= valueEnd) {
+                    sb.append(s, i, end);
+                    i = end - 1;
+                } else {
+                    sb.append("&amp;");
+                }
+            } else if (c == '"') {
+                sb.append("&quot;");
+            } else if (c == '<') {
+                sb.append("&lt;");
+            } else if (c == '>') {
+                sb.append("&gt;");
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Check that an address is relative or uses an allowed scheme. Character
+     * references and control characters are taken into account like the
+     * browser does.
+     */
+    private static boolean isSafeUrl(final CharSequence s, final int start,
+            final int end) {
+        StringBuilder scheme = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '&') {
+                int refEnd = entityEnd(s, i);
+                if (refEnd < 0 || refEnd > end) {
+                    return false;
+                }
+                int decoded = decode(s, i, refEnd);
+                if (decoded < 0) {
+                    return false;
+                }
+                c = (char) decoded;
+                i = refEnd - 1;
+            }
+            if (c <= ' ') {
+                continue;
+            }
+            if (c == ':') {
+                return URL_SCHEMES.contains(scheme.toString().toLowerCase(
+                        Locale.ENGLISH));
+            }
+            if (c == '/' || c == '?' || c == '#') {
+                return true;
+            }
+            scheme.append(c);
+        }
+        return true;
+    }
+
+    /**
+     * Decode a character reference used in an address.
+     *
+     * @return The character or -1 if the reference is not known.
+     */
+    private static int decode(final CharSequence s, final int start,
+            final int end) {
+        String ref = s.subSequence(start + 1, end - 1).toString();
+        if (ref.startsWith("#x") || ref.startsWith("#X")) {
+            return parse(ref.substring(2), 16);
+        }
+        if (ref.startsWith("#")) {
+            return parse(ref.substring(1), 10);
+        }
+        return -1;
+    }
+
+    private static int parse(final String number, final int radix) {
+        try {
+            int n = Integer.parseInt(number, radix);
+            return n > Character.MAX_VALUE ? -1 : n;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the end of a character reference starting at the given index.
+     *
+     * @return Index after the ';' or -1 if not a character reference.
+     */
+    private static int entityEnd(final CharSequence s, final int start) {
+        final int len = s.length();
+        int i = start + 1;
+        boolean numeric = i < len && s.charAt(i) == '#';
+        if (numeric) {
+            i++;
+            if (i < len && (s.charAt(i) == 'x' || s.charAt(i) == 'X')) {
+                i++;
+            }
+        }
+        final int nameStart = i;
+        while (i < len && i - nameStart < 10
+                && Character.isLetterOrDigit(s.charAt(i))) {
+            i++;
+        }
+        return i > nameStart && i < len && s.charAt(i) == ';' ? i + 1 : -1;
+    }
+
+    private static boolean isNameChar(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9');
+    }
+
+    private static boolean startsWith(final CharSequence s, final int start,
+            final String prefix) {
+        return regionMatches(s, start, prefix, false);
+    }
+
+    private static boolean regionMatches(final CharSequence s,
+            final int start, final String str, final boolean ignoreCase) {
+        if (start + str.length() > s.length()) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            char a = s.charAt(start + i);
+            char b = str.charAt(i);
+            if (a != b
+                    && !(ignoreCase && Character.toLowerCase(a) == Character
+                            .toLowerCase(b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(final CharSequence s, final String str,
+            final int from) {
+        return indexOf(s, str, from, false);
+    }
+
+    private static int indexOfIgnoreCase(final CharSequence s,
+            final String str, final int from) {
+        return indexOf(s, str, from, true);
+    }
+
+    private static int indexOf(final CharSequence s, final String str,
+            final int from, final boolean ignoreCase) {
+        for (int i = from; i + str.length() <= s.length(); i++) {
+            if (regionMatches(s, i, str, ignoreCase)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getAllowlist() {
+        return allowlist;
+    }
+
+    /**
+     * Compile the allowlist again when deserialized.
+     *
+     * @return
+     * @throws ObjectStreamException
+     */
+    private Object readResolve() throws ObjectStreamException {
+        return DEFAULT_ALLOWLIST.equals(allowlist) ? DEFAULT
+                : new HtmlSanitizer(allowlist);
+    }
+}
@@ -0,0 +1,298 @@
+package org.vaadin.dialogs;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.vaadin.data.Property;
+import com.vaadin.data.Property.ValueChangeEvent;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Button.ClickEvent;
+import com.vaadin.ui.CheckBox;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.VerticalLayout;
+import com.vaadin.ui.themes.Reindeer;
+
+/**
+ * Items with include and exclude toggles rendered one page at a time.
+ *
+ * The selection of all items is kept in a bit set on the server. A check box
+ * is rendered only for the items of the pages shown so far and the next page
+ * is added when the "show more" button is clicked. The check boxes are not
+ * immediate, so the toggles are sent to the server together with the click
+ * of the dialog button. "Select all" and "select none" change the items not
+ * rendered yet as well.
+ *
+ * The check box captions are the string values of the items.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class ItemSelection<T> extends VerticalLayout {
+
+    private static final long serialVersionUID = 4096837611935072385L;
+
+    public static final String DEFAULT_SELECT_ALL_CAPTION = "Select all";
+    public static final String DEFAULT_SELECT_NONE_CAPTION = "Select none";
+
+    /**
+     * Listener for the decision of a batch confirmation.
+     *
+     * @author Sami Ekblad
+     *
+     */
+    public interface Listener<T> extends Serializable {
+
+        /**
+         * Called once when the dialog is closed.
+         *
+         * @param dialog
+         *            The closed dialog.
+         * @param selected
+         *            Items selected when the dialog was confirmed in their
+         *            original order. Empty if the dialog was not confirmed.
+         */
+        void onClose(ConfirmDialog dialog, List<T> selected);
+    }
+
+    private final List<T> items;
+    private final BitSet selected;
+    private final int pageSize;
+    private final List<CheckBox> boxes = new ArrayList<CheckBox>();
+
+    private final VerticalLayout itemLayout = new VerticalLayout();
+    private final Button more;
+    private final Button all;
+    private final Button none;
+
+    /** Value listener shared by the check boxes of this selection. */
+    private final Property.ValueChangeListener toggleListener = new Property.ValueChangeListener() {
+        private static final long serialVersionUID = -1759240937468210325L;
+
+        public void valueChange(ValueChangeEvent event) {
+            CheckBox box = (CheckBox) event.getProperty();
+            selected.set((Integer) box.getData(), box.booleanValue());
+        }
+    };
+
+    /**
+     * @param items
+     *            Items to select from.
+     * @param pageSize
+     *            Number of items rendered at a time.
+     * @param selected
+     *            Are the items initially selected.
+     */
+    public ItemSelection(final List<T> items, final int pageSize,
+            final boolean selected) {
+        if (items == null) {
+            throw new IllegalArgumentException("Items cannot be null");
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.items = items;
+        this.pageSize = pageSize;
+        this.selected = new BitSet(items.size());
+        if (selected) {
+            this.selected.set(0, items.size());
+        }
+
+        all = createLinkButton(DEFAULT_SELECT_ALL_CAPTION);
+        none = createLinkButton(DEFAULT_SELECT_NONE_CAPTION);
+        more = createLinkButton(PagedMessage.DEFAULT_SHOW_MORE_CAPTION);
+
+        HorizontalLayout tools = new HorizontalLayout();
+        tools.setSpacing(true);
+        tools.addComponent(all);
+        tools.addComponent(none);
+        addComponent(tools);
+
+        itemLayout.setWidth("100%");
+        addComponent(itemLayout);
+        showMore();
+    }
+
+    private Button createLinkButton(final String caption) {
+        Button b = new Button(caption, new Button.ClickListener() {
+            private static final long serialVersionUID = 6320857436406418730L;
+
+            public void buttonClick(ClickEvent event) {
+                Button source = event.getButton();
+                if (source == all) {
+                    selectAll();
+                } else if (source == none) {
+                    selectNone();
+                } else {
+                    showMore();
+                }
+            }
+        });
+        b.setStyleName(Reindeer.BUTTON_LINK);
+        return b;
+    }
+
+    /**
+     * Render the next page of items.
+     *
+     * @return Number of items added.
+     */
+    public int showMore() {
+        int start = boxes.size();
+        int end = Math.min(items.size(), start + pageSize);
+        for (int i = start; i < end; i++) {
+            CheckBox box = new CheckBox(String.valueOf(items.get(i)),
+                    selected.get(i));
+            box.setData(i);
+            box.addListener(toggleListener);
+            boxes.add(box);
+            itemLayout.addComponent(box);
+        }
+        if (hasMore()) {
+            if (more.getParent() == null) {
+                addComponent(more);
+            }
+        } else if (more.getParent() != null) {
+            removeComponent(more);
+        }
+        return end - start;
+    }
+
+    /**
+     * Are there items not rendered yet.
+     *
+     * @return
+     */
+    public boolean hasMore() {
+        return boxes.size() < items.size();
+    }
+
+    /**
+     * Number of items rendered so far.
+     *
+     * @return
+     */
+    public int getShownItemCount() {
+        return boxes.size();
+    }
+
+    /**
+     * Select all items including the ones not rendered yet.
+     */
+    public void selectAll() {
+        selected.set(0, items.size());
+        updateBoxes();
+    }
+
+    /**
+     * Unselect all items including the ones not rendered yet.
+     */
+    public void selectNone() {
+        selected.clear();
+        updateBoxes();
+    }
+
+    private void updateBoxes() {
+        for (int i = 0; i < boxes.size(); i++) {
+            boxes.get(i).setValue(selected.get(i));
+        }
+    }
+
+    public boolean isSelected(final int index) {
+        return selected.get(index);
+    }
+
+    public void setSelected(final int index, final boolean select) {
+        if (index < 0 || index >= items.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        selected.set(index, select);
+        if (index < boxes.size()) {
+            boxes.get(index).setValue(select);
+        }
+    }
+
+    /**
+     * Number of selected items.
+     *
+     * @return
+     */
+    public int getSelectedCount() {
+        return selected.cardinality();
+    }
+
+    /**
+     * Get the selected items in their original order.
+     *
+     * @return
+     */
+    public List<T> getSelectedItems() {
+        List<T> result = new ArrayList<T>(selected.cardinality());
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected
+                .nextSetBit(i + 1)) {
+            result.add(items.get(i));
+        }
+        return result;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Get the check box of a rendered item.
+     *
+     * @param index
+     *            Item index
+     * @return The check box or null if the item is not rendered yet.
+     */
+    public CheckBox getCheckBox(final int index) {
+        return index >= 0 && index < boxes.size() ? boxes.get(index) : null;
+    }
+
+    public Button getShowMoreButton() {
+        return more;
+    }
+
+    public Button getSelectAllButton() {
+        return all;
+    }
+
+    public Button getSelectNoneButton() {
+        return none;
+    }
+
+    public void setShowMoreCaption(final String caption) {
+        more.setCaption(caption);
+    }
+
+    public void setSelectAllCaption(final String caption) {
+        all.setCaption(caption);
+    }
+
+    public void setSelectNoneCaption(final String caption) {
+        none.setCaption(caption);
+    }
+
+    /**
+     * Get the first page of items as lines for sizing the dialog.
+     *
+     * @return
+     */
+    String getFirstPage() {
+        StringBuilder sb = new StringBuilder();
+        int end = Math.min(pageSize, items.size());
+        for (int i = 0; i < end; i++) {
+            if (i > 0) {
+                sb.append('\n');
+            }
+            sb.append(items.get(i));
+        }
+        return sb.toString();
+    }
+}
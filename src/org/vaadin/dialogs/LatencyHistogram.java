@@ -0,0 +1,104 @@
+package org.vaadin.dialogs;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power of two buckets.
+ *
+ * Recording a value costs a few atomic increments and no allocation, so the
+ * histogram can be updated on every request. Percentiles are reported as the
+ * upper bound of the bucket they fall into, which is at most twice the real
+ * value.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos
+     *            Latency in nanoseconds. Negative values are ignored.
+     */
+    public void record(final long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        buckets.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long m;
+        while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) {
+            // retry
+        }
+    }
+
+    private static int bucket(final long nanos) {
+        return nanos == 0 ? 0 : 64 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0d : total.get() / (n * 1000000d);
+    }
+
+    public double getMaxMillis() {
+        return max.get() / 1000000d;
+    }
+
+    /**
+     * Approximate percentile of the recorded latencies.
+     *
+     * @param percentile
+     *            Percentile between 0 and 100
+     * @return Upper bound of the bucket holding the percentile in
+     *         milliseconds.
+     */
+    public double getPercentileMillis(final double percentile) {
+        long n = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+        if (n == 0) {
+            return 0d;
+        }
+        long rank = (long) Math.ceil(n * percentile / 100d);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                long upper = i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE
+                        : (1L << i) - 1;
+                return Math.min(upper, max.get()) / 1000000d;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Clear all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,136 @@
+package org.vaadin.dialogs;
+
+import com.vaadin.ui.Alignment;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Panel;
+import com.vaadin.ui.VerticalLayout;
+import com.vaadin.ui.themes.Reindeer;
+
+/**
+ * Confirmation dialog factory building a minimal component tree.
+ *
+ * The message label is placed directly into the window layout and the
+ * buttons into a CssLayout aligned to the right. The scrollable Panel is only
+ * added when the estimated message height exceeds the maximum window height.
+ * This makes the painted UIDL smaller and the dialog faster to render on the
+ * client.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class LightweightConfirmDialogFactory extends
+        DefaultConfirmDialogFactory {
+
+    private static final long serialVersionUID = -3079326244574120286L;
+
+    @Override
+    public ConfirmDialog create(final String caption, final String message,
+            final String okCaption, final String cancelCaption) {
+        long start = startCreate();
+
+        // Create a confirm dialog
+        final ConfirmDialog confirm = createDialog(caption);
+        String m = message != null ? message : getDefaultCaptions(null)
+                .getMessage();
+        ButtonBar buttons = new ButtonBar();
+        buttons.addComponent(createCancelButton(confirm, cancelCaption));
+        buttons.addComponent(createOkButton(confirm, okCaption));
+        build(confirm, m, buttons);
+        confirm.setMessage(m);
+
+        // Approximate the size of the dialog
+        setDialogSize(confirm, m);
+        return created(confirm, start);
+    }
+
+    @Override
+    protected void rebuild(final ConfirmDialog confirm) {
+        build(confirm, confirm.getMessage(), confirm.getOkButton()
+                .getParent());
+    }
+
+    /**
+     * Add the message label, scrolled only if needed, and the button bar to
+     * a dialog.
+     */
+    private void build(final ConfirmDialog confirm, final String message,
+            final Component buttons) {
+
+        // Create content
+        VerticalLayout c = (VerticalLayout) confirm.getContent();
+        c.setSizeFull();
+        c.setSpacing(true);
+
+        // Always HTML, but escape
+        Label text = new Label("", Label.CONTENT_RAW);
+        confirm.setMessageLabel(text);
+
+        if (isScrollingNeeded(message)) {
+            // Panel for scrolling lengthty messages.
+            Panel scroll = new Panel(new VerticalLayout());
+            scroll.setScrollable(true);
+            scroll.setSizeFull();
+            scroll.setStyleName(Reindeer.PANEL_LIGHT);
+            scroll.addComponent(text);
+            c.addComponent(scroll);
+            c.setExpandRatio(scroll, 1f);
+        } else {
+            c.addComponent(text);
+            c.setExpandRatio(text, 1f);
+        }
+
+        c.addComponent(buttons);
+        c.setComponentAlignment(buttons, Alignment.BOTTOM_RIGHT);
+        confirm.setResizable(false);
+    }
+
+    /**
+     * Create a dialog with the formatted template message. The scrolling
+     * decision needs the full message.
+     */
+    @Override
+    public ConfirmDialog create(final String caption,
+            final MessageTemplate message, final Object[] params,
+            final String okCaption, final String cancelCaption) {
+        return create(caption, message.format(params), okCaption,
+                cancelCaption);
+    }
+
+    /**
+     * Create a dialog with the template captions and message.
+     */
+    @Override
+    public ConfirmDialog create(final DialogTemplate template) {
+        return create(template.getCaption(), template.getMessage(),
+                template.getOkCaption(), template.getCancelCaption());
+    }
+
+    /**
+     * Check if the message is estimated to be higher than the maximum window
+     * height.
+     *
+     * @param message
+     * @return
+     */
+    protected boolean isScrollingNeeded(final String message) {
+        double[] size = getSizeEstimator().estimate(message,
+                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES, getMinWindowWidth(),
+                getMaxWindowWidth(), getMinWindowHeight(), Double.MAX_VALUE);
+        return size[1] > getMaxWindowHeight();
+    }
+
+    /**
+     * Buttons side by side with inline spacing.
+     */
+    private static class ButtonBar extends CssLayout {
+
+        private static final long serialVersionUID = 1383384436478585473L;
+
+        @Override
+        protected String getCss(Component c) {
+            return c == components.getFirst() ? null : "margin-left:0.5em;";
+        }
+    }
+}
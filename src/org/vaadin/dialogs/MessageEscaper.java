@@ -0,0 +1,107 @@
+package org.vaadin.dialogs;
+
+/**
+ * Escapes plain text messages for display in a raw HTML label.
+ *
+ * XML sensitive characters are replaced with the same entities Vaadin uses
+ * and line breaks ("\n", "\r\n" and "\r") are converted to {@code <br />}.
+ * All of this is done in a single pass over the message. Messages that do
+ * not need escaping are returned as is without copying.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public final class MessageEscaper {
+
+    static final String LINE_BREAK = "<br />";
+
+    private MessageEscaper() {
+    }
+
+    /**
+     * Escape a message.
+     *
+     * @param text
+     *            Message text. May be null.
+     * @return Escaped message, empty string for null.
+     */
+    public static String escape(final String text) {
+        if (text == null) {
+            return "";
+        }
+        final int len = text.length();
+        int i = 0;
+        while (i < len && replacement(text.charAt(i)) == null) {
+            i++;
+        }
+        if (i == len) {
+            return text;
+        }
+
+        // Room for a handful of entities and line breaks before growing
+        StringBuilder sb = new StringBuilder(len + (len >> 2) + 16);
+        sb.append(text, 0, i);
+        escape(text, i, len, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Escape a message to the given buffer.
+     *
+     * @param text
+     *            Text to escape.
+     * @param sb
+     *            Buffer to append to.
+     * @return The given buffer.
+     */
+    public static StringBuilder escape(final CharSequence text,
+            final StringBuilder sb) {
+        if (text != null) {
+            escape(text, 0, text.length(), sb);
+        }
+        return sb;
+    }
+
+    private static void escape(final CharSequence text, final int start,
+            final int end, final StringBuilder sb) {
+        int last = start;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            final String r = replacement(c);
+            if (r != null) {
+                sb.append(text, last, i).append(r);
+                if (c == '\r' && i + 1 < end && text.charAt(i + 1) == '\n') {
+                    i++; // "\r\n" is a single line break
+                }
+                last = i + 1;
+            }
+        }
+        sb.append(text, last, end);
+    }
+
+    /**
+     * Get the escaped form of a character or null if it is used as is.
+     *
+     * @param c
+     * @return
+     */
+    private static String replacement(final char c) {
+        switch (c) {
+        case '&':
+            return "&amp;";
+        case '<':
+            return "&lt;";
+        case '>':
+            return "&gt;";
+        case '"':
+            return "&quot;";
+        case '\'':
+            return "&apos;";
+        case '\n':
+        case '\r':
+            return LINE_BREAK;
+        default:
+            return null;
+        }
+    }
+}
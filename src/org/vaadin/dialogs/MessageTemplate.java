@@ -0,0 +1,207 @@
+package org.vaadin.dialogs;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Precompiled dialog message with numbered parameters.
+ *
+ * Parameters are written as <code>{0}</code>, <code>{1}</code> and so on.
+ * Other braces are used as is. The pattern is parsed and its fixed text
+ * escaped once when the template is compiled, so rendering a message only
+ * escapes the inserted parameters. Compiled templates are immutable and
+ * shared by all sessions.
+ *
+ * <pre>
+ * private static final MessageTemplate DELETE = MessageTemplate
+ *         .compile(&quot;Delete {0}?\nThis cannot be undone.&quot;);
+ *
+ * ConfirmDialog.show(mainWindow, DELETE, listener, record.getName());
+ * </pre>
+ *
+ * @author Sami Ekblad
+ *
+ */
+public final class MessageTemplate implements Serializable {
+
+    private static final long serialVersionUID = 6120866135883215749L;
+
+    /** Maximum number of cached templates. */
+    static final int MAX_CACHED_TEMPLATES = 256;
+
+    /** Room reserved for each parameter when rendering. */
+    private static final int PARAMETER_CAPACITY = 16;
+
+    private static final ConcurrentMap<String, MessageTemplate> cache = new ConcurrentHashMap<String, MessageTemplate>();
+
+    private final String pattern;
+    private final String[] segments;
+    private final String[] escapedSegments;
+    private final int[] parameters;
+    private final int fixedLength;
+    private final int escapedLength;
+
+    /**
+     * Get the compiled template of a pattern. Templates of recently used
+     * patterns are cached.
+     *
+     * @param pattern
+     *            Message pattern with parameters like <code>{0}</code>.
+     * @return
+     */
+    public static MessageTemplate compile(final String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("Pattern cannot be null");
+        }
+        MessageTemplate template = cache.get(pattern);
+        if (template == null) {
+            template = new MessageTemplate(pattern);
+            if (cache.size() >= MAX_CACHED_TEMPLATES) {
+                cache.clear();
+            }
+            cache.put(pattern, template);
+        }
+        return template;
+    }
+
+    private MessageTemplate(final String pattern) {
+        this.pattern = pattern;
+        List<String> s = new ArrayList<String>();
+        List<Integer> p = new ArrayList<Integer>();
+        int last = 0;
+        int i = pattern.indexOf('{');
+        while (i >= 0) {
+            int end = i + 1;
+            while (end < pattern.length() && end - i <= 4
+                    && Character.isDigit(pattern.charAt(end))) {
+                end++;
+            }
+            if (end > i + 1 && end < pattern.length()
+                    && pattern.charAt(end) == '}') {
+                s.add(pattern.substring(last, i));
+                p.add(Integer.valueOf(pattern.substring(i + 1, end)));
+                last = end + 1;
+            }
+            i = pattern.indexOf('{', i + 1);
+        }
+        s.add(pattern.substring(last));
+
+        segments = s.toArray(new String[s.size()]);
+        escapedSegments = new String[segments.length];
+        parameters = new int[p.size()];
+        int fixed = 0;
+        int escaped = 0;
+        for (int j = 0; j < segments.length; j++) {
+            escapedSegments[j] = MessageEscaper.escape(segments[j]);
+            fixed += segments[j].length();
+            escaped += escapedSegments[j].length();
+            if (j < parameters.length) {
+                parameters[j] = p.get(j);
+            }
+        }
+        fixedLength = fixed;
+        escapedLength = escaped;
+    }
+
+    /**
+     * Render the message for a dialog label. The fixed text is already
+     * escaped and only the parameters are escaped.
+     *
+     * @see MessageEscaper
+     * @param params
+     *            Parameter values. Missing parameters are left as is.
+     * @return Escaped message with HTML line breaks.
+     */
+    public String render(final Object... params) {
+        StringBuilder sb = new StringBuilder(escapedLength
+                + PARAMETER_CAPACITY * parameters.length);
+        for (int i = 0; i < parameters.length; i++) {
+            sb.append(escapedSegments[i]);
+            MessageEscaper.escape(getParameter(i, params), sb);
+        }
+        return sb.append(escapedSegments[parameters.length]).toString();
+    }
+
+    /**
+     * Format the message as plain text.
+     *
+     * @param params
+     *            Parameter values. Missing parameters are left as is.
+     * @return
+     */
+    public String format(final Object... params) {
+        StringBuilder sb = new StringBuilder(fixedLength + PARAMETER_CAPACITY
+                * parameters.length);
+        for (int i = 0; i < parameters.length; i++) {
+            sb.append(segments[i]).append(getParameter(i, params));
+        }
+        return sb.append(segments[parameters.length]).toString();
+    }
+
+    /**
+     * Get the text inserted for a parameter.
+     *
+     * @param i
+     *            Index of the parameter in the pattern.
+     * @param params
+     *            Parameter values.
+     * @return
+     */
+    String getParameter(final int i, final Object[] params) {
+        return params != null && parameters[i] < params.length ? String
+                .valueOf(params[parameters[i]]) : "{" + parameters[i] + "}";
+    }
+
+    /**
+     * Get the fixed text between the parameters.
+     *
+     * @param i
+     *            Index of the segment from 0 to the parameter count.
+     * @return
+     */
+    String getSegment(final int i) {
+        return segments[i];
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Number of parameters in the pattern. A parameter used twice is counted
+     * twice.
+     *
+     * @return
+     */
+    public int getParameterCount() {
+        return parameters.length;
+    }
+
+    /**
+     * Length of the text outside the parameters.
+     *
+     * @return
+     */
+    public int getFixedLength() {
+        return fixedLength;
+    }
+
+    @Override
+    public int hashCode() {
+        return pattern.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof MessageTemplate
+                && pattern.equals(((MessageTemplate) obj).pattern);
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,231 @@
+package org.vaadin.dialogs;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Button.ClickEvent;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.VerticalLayout;
+import com.vaadin.ui.themes.Reindeer;
+
+/**
+ * Message given as lines and rendered one page at a time.
+ *
+ * Only the first page is rendered when the dialog is shown. The next page is
+ * read and added as a new label when the "show more" button is clicked, so
+ * only the new lines are sent to the client. Lines from a random access list
+ * are read by index, other sources are read lazily through their iterator.
+ * The pages are rendered in the content mode of the {@link ConfirmDialog}
+ * they are shown in.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class PagedMessage extends VerticalLayout {
+
+    private static final long serialVersionUID = -6618870465453935012L;
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final String DEFAULT_SHOW_MORE_CAPTION = "Show more";
+
+    private final List<String> list;
+    private transient Iterator<String> iterator;
+    private int next = 0;
+    private final int pageSize;
+    private int shownLines = 0;
+
+    private final Label messageLabel = new Label("", Label.CONTENT_RAW);
+    private final String firstPage;
+    private final Button more = new Button(DEFAULT_SHOW_MORE_CAPTION,
+            new Button.ClickListener() {
+                private static final long serialVersionUID = -3021938421409856045L;
+
+                public void buttonClick(ClickEvent event) {
+                    showMore();
+                }
+            });
+
+    /**
+     * @param lines
+     *            Message lines.
+     * @param pageSize
+     *            Number of lines rendered at a time.
+     */
+    @SuppressWarnings("unchecked")
+    public PagedMessage(final Iterable<String> lines, final int pageSize) {
+        if (lines == null) {
+            throw new IllegalArgumentException("Lines cannot be null");
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.pageSize = pageSize;
+        if (lines instanceof List && lines instanceof RandomAccess) {
+            list = (List<String>) lines;
+        } else {
+            list = null;
+            iterator = lines.iterator();
+        }
+
+        messageLabel.setWidth("100%");
+        addComponent(messageLabel);
+        firstPage = readPage();
+
+        more.setStyleName(Reindeer.BUTTON_LINK);
+        if (hasMore()) {
+            addComponent(more);
+        }
+    }
+
+    /**
+     * Get the label for the first page. The dialog renders the first page
+     * into this label as its message.
+     *
+     * @return
+     */
+    public Label getMessageLabel() {
+        return messageLabel;
+    }
+
+    /**
+     * Get the lines of the first page separated by line breaks.
+     *
+     * @return
+     */
+    public String getFirstPage() {
+        return firstPage;
+    }
+
+    /**
+     * Render the next page of lines.
+     *
+     * @return Number of lines added.
+     */
+    public int showMore() {
+        int before = shownLines;
+        String page = readPage();
+        if (shownLines > before) {
+            Label l = new Label();
+            l.setData(page);
+            l.setWidth("100%");
+            addComponent(l, getComponentIndex(more));
+            renderPage(l, getDialog());
+        }
+        if (!hasMore()) {
+            removeComponent(more);
+        }
+        return shownLines - before;
+    }
+
+    /**
+     * Are there lines not rendered yet.
+     *
+     * @return
+     */
+    public boolean hasMore() {
+        if (list != null) {
+            return next < list.size();
+        }
+        return iterator != null && iterator.hasNext();
+    }
+
+    /**
+     * Number of lines rendered so far.
+     *
+     * @return
+     */
+    public int getShownLineCount() {
+        return shownLines;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public Button getShowMoreButton() {
+        return more;
+    }
+
+    public void setShowMoreCaption(final String caption) {
+        more.setCaption(caption);
+    }
+
+    /**
+     * Render the pages after the first again in the content mode of the
+     * dialog. The dialog renders the first page itself.
+     *
+     * @param dialog
+     */
+    void renderPages(final ConfirmDialog dialog) {
+        Iterator<Component> i = getComponentIterator();
+        while (i.hasNext()) {
+            Component c = i.next();
+            if (c != messageLabel && c instanceof Label) {
+                renderPage((Label) c, dialog);
+            }
+        }
+    }
+
+    private static void renderPage(final Label label,
+            final ConfirmDialog dialog) {
+        String page = (String) label.getData();
+        if (dialog != null) {
+            dialog.render(label, page);
+        } else {
+            label.setContentMode(Label.CONTENT_RAW);
+            label.setValue(MessageEscaper.escape(page));
+        }
+    }
+
+    /**
+     * Find the dialog this message is shown in.
+     *
+     * @return The dialog or null if not in a dialog.
+     */
+    private ConfirmDialog getDialog() {
+        Component c = getParent();
+        while (c != null && !(c instanceof ConfirmDialog)) {
+            c = c.getParent();
+        }
+        return (ConfirmDialog) c;
+    }
+
+    private String readPage() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pageSize && hasMore(); i++) {
+            if (i > 0) {
+                sb.append('\n');
+            }
+            String line = list != null ? list.get(next++) : iterator.next();
+            if (line != null) {
+                sb.append(line);
+            }
+            shownLines++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Join all lines with line breaks.
+     *
+     * @param lines
+     * @return
+     */
+    static String join(final Iterable<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        boolean first = true;
+        for (String line : lines) {
+            if (!first) {
+                sb.append('\n');
+            }
+            first = false;
+            if (line != null) {
+                sb.append(line);
+            }
+        }
+        return sb.toString();
+    }
+}
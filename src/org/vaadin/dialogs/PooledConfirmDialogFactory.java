@@ -0,0 +1,186 @@
+package org.vaadin.dialogs;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.vaadin.Application;
+
+/**
+ * Confirmation dialog factory that recycles closed dialogs.
+ *
+ * Closed dialogs are returned to a small pool kept per application and the
+ * next dialog shown in that application reuses the component tree instead of
+ * building a new one. Caption, message, button captions, the confirmed state
+ * and the enabled flag are reset when a dialog is taken from the pool.
+ * Missing captions are replaced with the defaults of the application locale.
+ *
+ * Enable with:
+ *
+ * <pre>
+ * ConfirmDialog.setFactory(new PooledConfirmDialogFactory());
+ * </pre>
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class PooledConfirmDialogFactory extends DefaultConfirmDialogFactory {
+
+    private static final long serialVersionUID = 8170617290870183215L;
+
+    /** Default number of closed dialogs kept per application. */
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    private final int poolSize;
+
+    // Dialogs are only pooled in the server memory, never in the session
+    private transient Map<Application, ArrayDeque<ConfirmDialog>> pools;
+    private transient Map<ConfirmDialog, WeakReference<Application>> owners;
+
+    public PooledConfirmDialogFactory() {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * @param poolSize
+     *            Maximum number of closed dialogs kept per application.
+     */
+    public PooledConfirmDialogFactory(final int poolSize) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("Negative pool size: "
+                    + poolSize);
+        }
+        this.poolSize = poolSize;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Create a dialog for the given application reusing a pooled one if
+     * available.
+     *
+     * @param application
+     *            Application the dialog is shown in. If null, a new dialog is
+     *            always created and not pooled.
+     * @param caption
+     * @param message
+     * @param okCaption
+     * @param cancelCaption
+     * @return
+     */
+    @Override
+    public ConfirmDialog create(final Application application,
+            final String caption, final String message,
+            final String okCaption, final String cancelCaption) {
+        if (application == null) {
+            return super.create(null, caption, message, okCaption,
+                    cancelCaption);
+        }
+
+        ConfirmDialog confirm;
+        synchronized (this) {
+            ArrayDeque<ConfirmDialog> pool = getPools().get(application);
+            confirm = pool != null ? pool.poll() : null;
+        }
+
+        if (confirm == null) {
+            confirm = super.create(application, caption, message, okCaption,
+                    cancelCaption);
+        } else {
+            long start = startCreate();
+            DefaultCaptions defaults = getDefaultCaptions(application);
+            reuse(confirm, caption != null ? caption : defaults.getCaption(),
+                    message != null ? message : defaults.getMessage(),
+                    okCaption != null ? okCaption : defaults.getOkCaption(),
+                    cancelCaption != null ? cancelCaption : defaults
+                            .getCancelCaption());
+            created(confirm, start);
+        }
+
+        synchronized (this) {
+            getOwners().put(confirm,
+                    new WeakReference<Application>(application));
+        }
+        return confirm;
+    }
+
+    /**
+     * Get the number of closed dialogs currently pooled for an application.
+     *
+     * @param application
+     * @return
+     */
+    public synchronized int getPooledCount(final Application application) {
+        ArrayDeque<ConfirmDialog> pool = getPools().get(application);
+        return pool != null ? pool.size() : 0;
+    }
+
+    /**
+     * Reset a pooled dialog to show a new message.
+     *
+     * @param confirm
+     * @param caption
+     * @param message
+     * @param okCaption
+     * @param cancelCaption
+     */
+    protected void reuse(final ConfirmDialog confirm, final String caption,
+            final String message, final String okCaption,
+            final String cancelCaption) {
+        DefaultCaptions defaults = getDefaultCaptions(null);
+        String m = message != null ? message : defaults.getMessage();
+        confirm.reset();
+        confirm.setEnabled(true);
+        confirm.setCaption(caption != null ? caption : defaults.getCaption());
+        if (confirm.getContentMode() != ConfirmDialog.CONTENT_DEFAULT) {
+            confirm.setContentMode(ConfirmDialog.CONTENT_DEFAULT);
+        }
+        confirm.setMessage(m);
+        confirm.getCancelButton().setCaption(
+                cancelCaption != null ? cancelCaption : defaults
+                        .getCancelCaption());
+        confirm.getOkButton().setCaption(
+                okCaption != null ? okCaption : defaults.getOkCaption());
+        confirm.getOkButton().focus();
+        setDialogSize(confirm, m);
+    }
+
+    @Override
+    protected void dialogClosed(final ConfirmDialog confirm) {
+        synchronized (this) {
+            WeakReference<Application> owner = getOwners().remove(confirm);
+            Application application = owner != null ? owner.get() : null;
+            if (application == null || confirm.getParent() != null) {
+                return;
+            }
+            ArrayDeque<ConfirmDialog> pool = getPools().get(application);
+            if (pool == null) {
+                pool = new ArrayDeque<ConfirmDialog>(poolSize);
+                getPools().put(application, pool);
+            }
+            if (pool.size() < poolSize) {
+                // Drop the listener so that the pool does not keep it alive.
+                // The state is reset only when the dialog is reused.
+                confirm.releaseListener();
+                pool.add(confirm);
+            }
+        }
+    }
+
+    private Map<Application, ArrayDeque<ConfirmDialog>> getPools() {
+        if (pools == null) {
+            pools = new WeakHashMap<Application, ArrayDeque<ConfirmDialog>>();
+        }
+        return pools;
+    }
+
+    private Map<ConfirmDialog, WeakReference<Application>> getOwners() {
+        if (owners == null) {
+            owners = new WeakHashMap<ConfirmDialog, WeakReference<Application>>();
+        }
+        return owners;
+    }
+}
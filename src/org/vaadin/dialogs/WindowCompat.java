@@ -0,0 +1,96 @@
+package org.vaadin.dialogs;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+
+import com.vaadin.ui.Window;
+
+/**
+ * Compatibility layer for removing sub windows.
+ *
+ * The return type of Window.removeWindow changed in Vaadin 6.4 from void to
+ * boolean, so a direct call compiled against one version fails with the
+ * other. The matching removal strategy is resolved once when this class is
+ * loaded:
+ *
+ * <ul>
+ * <li>a direct call when the runtime signature matches the compiled one,</li>
+ * <li>a cached MethodHandle otherwise,</li>
+ * <li>a cached reflective Method as the last fallback.</li>
+ * </ul>
+ *
+ * @author Sami Ekblad
+ *
+ */
+final class WindowCompat {
+
+    enum Strategy {
+        DIRECT, METHOD_HANDLE, REFLECTION
+    }
+
+    private static final Strategy STRATEGY;
+    private static final MethodHandle REMOVE_HANDLE;
+    private static final Method REMOVE_METHOD;
+
+    static {
+        Method method;
+        try {
+            method = Window.class.getMethod("removeWindow", Window.class);
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+
+        MethodHandle handle = null;
+        Strategy strategy;
+        if (method.getReturnType() == boolean.class) {
+            strategy = Strategy.DIRECT;
+        } else {
+            try {
+                handle = MethodHandles.publicLookup().unreflect(method);
+                strategy = Strategy.METHOD_HANDLE;
+            } catch (IllegalAccessException e) {
+                strategy = Strategy.REFLECTION;
+            }
+        }
+        STRATEGY = strategy;
+        REMOVE_HANDLE = handle;
+        REMOVE_METHOD = method;
+    }
+
+    private WindowCompat() {
+    }
+
+    static Strategy getStrategy() {
+        return STRATEGY;
+    }
+
+    /**
+     * Remove a sub window from its parent window.
+     *
+     * @param parent
+     * @param window
+     */
+    static void removeWindow(final Window parent, final Window window) {
+        try {
+            switch (STRATEGY) {
+            case DIRECT:
+                parent.removeWindow(window);
+                break;
+            case METHOD_HANDLE:
+                REMOVE_HANDLE.invoke(parent, window);
+                break;
+            default:
+                REMOVE_METHOD.invoke(parent, window);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(
+                    "Failed to remove confirmation dialog from the parent window.",
+                    e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.vaadin.dialogs.client.ui;
+
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.event.dom.client.KeyCodes;
+import com.google.gwt.event.dom.client.KeyDownEvent;
+import com.google.gwt.event.dom.client.KeyDownHandler;
+import com.google.gwt.user.client.ui.Button;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.HTML;
+import com.google.gwt.user.client.ui.Label;
+import com.vaadin.terminal.gwt.client.ApplicationConnection;
+import com.vaadin.terminal.gwt.client.UIDL;
+import com.vaadin.terminal.gwt.client.ui.VButton;
+import com.vaadin.terminal.gwt.client.ui.VOverlay;
+
+/**
+ * Client side of the ConfirmButton.
+ *
+ * The dialog captions and the escaped message are painted with the button,
+ * so clicking the button opens the dialog in the browser without a server
+ * request. Only the decision is sent to the server.
+ *
+ * @author Sami Ekblad
+ *
+ */
+public class VConfirmButton extends VButton {
+
+    public static final String CLASSNAME = "v-confirmbutton";
+
+    public static final String ATTR_DIALOG_CAPTION = "dcaption";
+    public static final String ATTR_MESSAGE = "message";
+    public static final String ATTR_OK_CAPTION = "ok";
+    public static final String ATTR_CANCEL_CAPTION = "cancel";
+    public static final String VAR_CONFIRMED = "confirmed";
+
+    private String dialogCaption = "";
+    private String message = "";
+    private String okCaption = "";
+    private String cancelCaption = "";
+
+    private ConfirmPopup popup;
+
+    public VConfirmButton() {
+        addStyleName(CLASSNAME);
+    }
+
+    @Override
+    public void updateFromUIDL(UIDL uidl, ApplicationConnection client) {
+        super.updateFromUIDL(uidl, client);
+        if (!uidl.hasAttribute(ATTR_MESSAGE)) {
+            return;
+        }
+        dialogCaption = uidl.getStringAttribute(ATTR_DIALOG_CAPTION);
+        message = uidl.getStringAttribute(ATTR_MESSAGE);
+        okCaption = uidl.getStringAttribute(ATTR_OK_CAPTION);
+        cancelCaption = uidl.getStringAttribute(ATTR_CANCEL_CAPTION);
+    }
+
+    /**
+     * Open the dialog instead of sending the click to the server.
+     */
+    @Override
+    public void onClick(ClickEvent event) {
+        if (id == null || client == null) {
+            return;
+        }
+        clickPending = false;
+        if (popup == null) {
+            popup = new ConfirmPopup();
+        }
+        popup.open();
+    }
+
+    @Override
+    protected void onDetach() {
+        super.onDetach();
+        if (popup != null) {
+            popup.hide();
+        }
+    }
+
+    private void decide(boolean confirmed) {
+        if (!popup.isShowing()) {
+            return;
+        }
+        popup.hide();
+        setFocus(true);
+        client.updateVariable(id, VAR_CONFIRMED, confirmed, true);
+    }
+
+    /**
+     * Modal dialog built on the client.
+     */
+    private class ConfirmPopup extends VOverlay implements KeyDownHandler {
+
+        private final Label caption = new Label();
+        private final HTML text = new HTML();
+        private final Button ok = new Button();
+        private final Button cancel = new Button();
+
+        ConfirmPopup() {
+            super(false, true, true);
+            setStyleName(CLASSNAME + "-dialog");
+            setGlassEnabled(true);
+            setGlassStyleName("v-window-modalitycurtain");
+
+            FlowPanel content = new FlowPanel();
+            caption.setStyleName(CLASSNAME + "-caption");
+            content.add(caption);
+            text.setStyleName(CLASSNAME + "-message");
+            content.add(text);
+
+            FlowPanel buttons = new FlowPanel();
+            buttons.setStyleName(CLASSNAME + "-buttons");
+            cancel.addClickHandler(new ClickHandler() {
+                public void onClick(ClickEvent event) {
+                    decide(false);
+                }
+            });
+            buttons.add(cancel);
+            ok.addStyleName("v-button-primary");
+            ok.addClickHandler(new ClickHandler() {
+                public void onClick(ClickEvent event) {
+                    decide(true);
+                }
+            });
+            buttons.add(ok);
+            content.add(buttons);
+
+            setWidget(content);
+            addDomHandler(this, KeyDownEvent.getType());
+        }
+
+        void open() {
+            caption.setText(dialogCaption);
+            text.setHTML(message);
+            ok.setText(okCaption);
+            cancel.setText(cancelCaption);
+            center();
+
+            // Enter clicks the focused button
+            ok.setFocus(true);
+        }
+
+        public void onKeyDown(KeyDownEvent event) {
+            if (event.getNativeKeyCode() == KeyCodes.KEY_ESCAPE) {
+                event.preventDefault();
+                decide(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.vaadin.dialogs;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import com.vaadin.Application;
+import com.vaadin.service.ApplicationContext;
+import com.vaadin.terminal.ApplicationResource;
+import com.vaadin.terminal.PaintException;
+import com.vaadin.terminal.gwt.server.CommunicationManager;
+import com.vaadin.terminal.gwt.server.JsonPaintTarget;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Window;
+
+/**
+ * Application, listener and helpers shared by the tests.
+ */
+@SuppressWarnings("serial")
+final class DialogTestSupport {
+
+    private DialogTestSupport() {
+    }
+
+    /**
+     * Application without an initial user interface.
+     */
+    static class TestApplication extends Application {
+        @Override
+        public void init() {
+        }
+    }
+
+    /**
+     * Listener counting the confirmed dialogs.
+     */
+    static class Counter implements ConfirmDialog.Listener {
+        int confirmed;
+
+        public void onClose(ConfirmDialog dialog) {
+            if (dialog.isConfirmed()) {
+                confirmed++;
+            }
+        }
+    }
+
+    /**
+     * Create an application with a main window.
+     *
+     * @return The main window.
+     */
+    static Window createMainWindow() {
+        Application app = new TestApplication();
+        Window main = new Window();
+        app.setMainWindow(main);
+        return main;
+    }
+
+    /**
+     * Application context running the transaction listeners for simulated
+     * requests.
+     */
+    static class TestContext implements ApplicationContext {
+        private final List<TransactionListener> listeners = new ArrayList<TransactionListener>();
+
+        /**
+         * Start an application with a main window in this context.
+         */
+        Application start() throws Exception {
+            Application app = new TestApplication();
+            app.start(new URL("http://localhost/"), new Properties(), this);
+            app.setMainWindow(new Window());
+            return app;
+        }
+
+        /**
+         * Simulate a request of an application.
+         */
+        void request(Application application) {
+            for (TransactionListener l : new ArrayList<TransactionListener>(
+                    listeners)) {
+                l.transactionStart(application, null);
+            }
+            for (TransactionListener l : new ArrayList<TransactionListener>(
+                    listeners)) {
+                l.transactionEnd(application, null);
+            }
+        }
+
+        public File getBaseDirectory() {
+            return null;
+        }
+
+        public Collection<Application> getApplications() {
+            return Collections.emptyList();
+        }
+
+        public void addTransactionListener(TransactionListener listener) {
+            listeners.add(listener);
+        }
+
+        public void removeTransactionListener(TransactionListener listener) {
+            listeners.remove(listener);
+        }
+
+        @Deprecated
+        public String generateApplicationResourceURL(
+                ApplicationResource resource, String urlKey) {
+            return null;
+        }
+
+        @Deprecated
+        public boolean isApplicationResourceURL(URL context, String relativeUri) {
+            return false;
+        }
+
+        @Deprecated
+        public String getURLKey(URL context, String relativeUri) {
+            return null;
+        }
+    }
+
+    /**
+     * Click a button like the browser does. Use {@link DialogTester} for the
+     * dialog buttons.
+     */
+    static void click(Button button) {
+        button.changeVariables(button,
+                Collections.<String, Object> singletonMap("state", true));
+    }
+
+    /**
+     * Paint a window and return the UIDL length.
+     */
+    static int paintSize(Application app, Window window) throws PaintException {
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        JsonPaintTarget target = new JsonPaintTarget(new CommunicationManager(
+                app), pw, false);
+        window.paint(target);
+        target.close();
+        pw.flush();
+        return sw.getBuffer().length();
+    }
+}
@@ -0,0 +1,136 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * Tests for the future based confirmation API.
+ */
+public class TestAsyncConfirmation {
+
+    private Application app;
+    private Window main;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ConfirmDialog openDialog() {
+        return (ConfirmDialog) main.getChildWindows().iterator().next();
+    }
+
+    @Test
+    public void decision() throws Exception {
+        CompletableFuture<Boolean> f = ConfirmDialog.showAsync(main, null,
+                "Delete?", null, null);
+        assertFalse(f.isDone());
+        DialogTestSupport.click(openDialog().getOkButton());
+        assertTrue(f.get(0, TimeUnit.SECONDS));
+
+        f = ConfirmDialog.showAsync(main, null, "Delete?", null, null);
+        DialogTestSupport.click(openDialog().getCancelButton());
+        assertFalse(f.get(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void actionRunsOnExecutor() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread[] actionThread = new Thread[1];
+        CompletableFuture<Boolean> f = ConfirmDialog.showAsync(main,
+                "Delete?", new Runnable() {
+                    public void run() {
+                        actionThread[0] = Thread.currentThread();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }, executor);
+
+        // The click returns while the slow action is still running
+        DialogTestSupport.click(openDialog().getOkButton());
+        assertTrue(main.getChildWindows().isEmpty());
+        assertFalse(f.isDone());
+
+        release.countDown();
+        assertTrue(f.get(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), actionThread[0]);
+    }
+
+    @Test
+    public void cancelledActionIsNotRun() throws Exception {
+        final boolean[] run = new boolean[1];
+        CompletableFuture<Boolean> f = ConfirmDialog.showAsync(main,
+                "Delete?", new Runnable() {
+                    public void run() {
+                        run[0] = true;
+                    }
+                }, executor);
+        DialogTestSupport.click(openDialog().getCancelButton());
+        assertFalse(f.get(0, TimeUnit.SECONDS));
+        assertFalse(run[0]);
+    }
+
+    @Test
+    public void failedAction() throws Exception {
+        CompletableFuture<Boolean> f = ConfirmDialog.showAsync(main,
+                "Delete?", new Runnable() {
+                    public void run() {
+                        throw new IllegalStateException("Failed");
+                    }
+                }, executor);
+        DialogTestSupport.click(openDialog().getOkButton());
+        try {
+            f.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertEquals("Failed", e.getCause().getMessage());
+            return;
+        }
+        throw new AssertionError("Expected failure");
+    }
+
+    @Test
+    public void resultUnderApplicationLock() throws Exception {
+        CompletableFuture<Boolean> f = ConfirmDialog.showAsync(main,
+                "Delete?", new Runnable() {
+                    public void run() {
+                    }
+                }, executor);
+        CompletableFuture<Boolean> locked = f.thenApplyAsync(
+                new Function<Boolean, Boolean>() {
+                    public Boolean apply(Boolean confirmed) {
+                        return Thread.holdsLock(app);
+                    }
+                }, new ApplicationExecutor(app));
+        DialogTestSupport.click(openDialog().getOkButton());
+        assertTrue(locked.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,121 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.terminal.PaintException;
+import com.vaadin.terminal.gwt.server.CommunicationManager;
+import com.vaadin.terminal.gwt.server.JsonPaintTarget;
+import com.vaadin.ui.Window;
+
+/**
+ * The confirm button sends the dialog with its paint and handles the
+ * decision made in the browser.
+ */
+public class TestConfirmButton {
+
+    private Application app;
+    private Window main;
+    private final List<ConfirmDialog> decided = new ArrayList<ConfirmDialog>();
+
+    private final ConfirmDialog.Listener listener = new ConfirmDialog.Listener() {
+        private static final long serialVersionUID = 1L;
+
+        public void onClose(ConfirmDialog dialog) {
+            decided.add(dialog);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+    }
+
+    private String paint() throws PaintException {
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        JsonPaintTarget target = new JsonPaintTarget(new CommunicationManager(
+                app), pw, false);
+        main.paint(target);
+        target.close();
+        pw.flush();
+        return sw.toString();
+    }
+
+    private static void decide(ConfirmButton button, boolean confirmed) {
+        button.changeVariables(button, Collections.<String, Object> singletonMap(
+                "confirmed", confirmed));
+    }
+
+    @Test
+    public void dialogIsPaintedWithButton() throws PaintException {
+        main.addComponent(new ConfirmButton("Delete", "Delete <Tom>?\nSure?",
+                listener));
+        String uidl = paint();
+        assertTrue(uidl.contains("\"dcaption\": \"Confirm\""));
+        assertTrue(uidl
+                .contains("\"message\": \"Delete &lt;Tom&gt;?<br \\/>Sure?\""));
+        assertTrue(uidl.contains("\"ok\": \"Ok\""));
+        assertTrue(uidl.contains("\"cancel\": \"Cancel\""));
+    }
+
+    @Test
+    public void decisionNotifiesListener() {
+        ConfirmButton button = new ConfirmButton("Delete", "Delete?", listener);
+        main.addComponent(button);
+
+        decide(button, true);
+        assertEquals(1, decided.size());
+        ConfirmDialog d = decided.get(0);
+        assertTrue(d.isConfirmed());
+        assertSame(ConfirmDialog.Outcome.CONFIRMED, d.getOutcome());
+        assertSame(ConfirmDialog.State.CLOSED, d.getState());
+        assertEquals("Delete?", d.getMessage());
+        assertNull(d.getParent());
+        assertTrue(main.getChildWindows().isEmpty());
+
+        decide(button, false);
+        assertEquals(2, decided.size());
+        assertFalse(decided.get(1).isConfirmed());
+        assertSame(ConfirmDialog.Outcome.CANCELLED, decided.get(1).getOutcome());
+    }
+
+    @Test
+    public void disabledButtonIgnoresDecision() {
+        ConfirmButton button = new ConfirmButton("Delete", "Delete?", listener);
+        main.addComponent(button);
+        button.setEnabled(false);
+        decide(button, true);
+        assertTrue(decided.isEmpty());
+    }
+
+    @Test
+    public void clickWithoutWidgetsetShowsServerDialog() {
+        ConfirmButton button = new ConfirmButton("Delete", "Delete?", listener);
+        main.addComponent(button);
+        DialogTestSupport.click(button);
+
+        assertEquals(1, main.getChildWindows().size());
+        ConfirmDialog d = (ConfirmDialog) main.getChildWindows().iterator()
+                .next();
+        assertEquals("Delete?", d.getMessage());
+        DialogTestSupport.click(d.getOkButton());
+        assertEquals(1, decided.size());
+        assertTrue(decided.get(0).isConfirmed());
+    }
+}
@@ -0,0 +1,272 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * Tests for the bounded confirmed action scheduler.
+ */
+@SuppressWarnings("serial")
+public class TestConfirmedActionScheduler {
+
+    private Application app;
+    private Window main;
+    private ConfirmedActionScheduler scheduler;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch running = new CountDownLatch(1);
+    private final List<ConfirmDialog> rejectedDialogs = new ArrayList<ConfirmDialog>();
+
+    private final ConfirmedActionScheduler.RejectionListener rejectionListener = new ConfirmedActionScheduler.RejectionListener() {
+        public void actionRejected(ConfirmDialog dialog, Runnable action) {
+            rejectedDialogs.add(dialog);
+        }
+    };
+
+    private final Runnable slowAction = new Runnable() {
+        public void run() {
+            running.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    @Before
+    public void setUp() {
+        app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+        setScheduler(new ConfirmedActionScheduler(1, 1,
+                ConfirmedActionScheduler.RejectionPolicy.ABORT));
+    }
+
+    private void setScheduler(ConfirmedActionScheduler s) {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        scheduler = s;
+        scheduler.setRejectionListener(rejectionListener);
+        ConfirmDialog.setActionScheduler(scheduler);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        ConfirmDialog.setActionScheduler(null);
+        scheduler.shutdown();
+    }
+
+    private ConfirmDialog confirm() {
+        return confirm(main);
+    }
+
+    private ConfirmDialog confirm(Window window) {
+        ConfirmDialog d = ConfirmDialog.show(window, null, "Delete?", null,
+                null, slowAction);
+        DialogTestSupport.click(d.getOkButton());
+        return d;
+    }
+
+    private void awaitCompleted(long count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (scheduler.getCompletedCount() < count
+                && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, scheduler.getCompletedCount());
+    }
+
+    @Test
+    public void dialogShowsStatusUntilFinished() throws Exception {
+        ConfirmDialog first = confirm();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        ConfirmDialog second = confirm();
+
+        synchronized (app) {
+            assertSame(main, first.getParent());
+            assertSame(main, second.getParent());
+            assertEquals(scheduler.getRunningCaption(), first.getMessage());
+            assertEquals(scheduler.getQueuedCaption(), second.getMessage());
+            assertFalse(second.getOkButton().isVisible());
+            assertFalse(second.isClosable());
+        }
+        assertEquals(1, scheduler.getRunningCount());
+        assertEquals(1, scheduler.getQueueDepth());
+
+        release.countDown();
+        awaitCompleted(2);
+        synchronized (app) {
+            assertTrue(main.getChildWindows().isEmpty());
+        }
+        assertEquals(0, scheduler.getQueueDepth());
+        assertTrue(scheduler.getMaxWaitMillis() > 0d);
+        assertTrue(scheduler.getAverageWaitMillis() > 0d);
+    }
+
+    @Test
+    public void fullQueueIsRejected() throws Exception {
+        confirm();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        confirm();
+        ConfirmDialog third = confirm();
+        assertEquals(1, scheduler.getRejectedCount());
+        assertEquals(1, rejectedDialogs.size());
+        assertSame(third, rejectedDialogs.get(0));
+        // The click was processed normally
+        assertEquals(ConfirmDialog.State.CLOSED, third.getState());
+        assertTrue(third.isConfirmed());
+        synchronized (app) {
+            assertEquals(2, main.getChildWindows().size());
+            assertFalse(main.getChildWindows().contains(third));
+        }
+        release.countDown();
+        awaitCompleted(2);
+    }
+
+    @Test
+    public void applicationCannotTakeAllWorkers() throws Exception {
+        setScheduler(new ConfirmedActionScheduler(2, 1, 1,
+                ConfirmedActionScheduler.RejectionPolicy.ABORT, Executors
+                        .defaultThreadFactory()));
+        confirm();
+        confirm();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(1, scheduler.getRunningCount());
+        assertEquals(1, scheduler.getQueueDepth());
+
+        Window other = DialogTestSupport.createMainWindow();
+        confirm(other);
+        long end = System.currentTimeMillis() + 5000;
+        while (scheduler.getRunningCount() < 2
+                && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, scheduler.getRunningCount());
+        assertEquals(0, scheduler.getRejectedCount());
+
+        release.countDown();
+        awaitCompleted(3);
+    }
+
+    @Test
+    public void discardedActionIsClosedInItsOwnSession() throws Exception {
+        setScheduler(new ConfirmedActionScheduler(1, 2, 1,
+                ConfirmedActionScheduler.RejectionPolicy.DISCARD_OLDEST,
+                Executors.defaultThreadFactory()));
+        DialogTestSupport.TestContext context = new DialogTestSupport.TestContext();
+        final Application other = context.start();
+        confirm();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        ConfirmDialog queued = confirm(other.getMainWindow());
+
+        // Another request of the other session is being processed
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch unlock = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            threads.execute(new Runnable() {
+                public void run() {
+                    synchronized (other) {
+                        locked.countDown();
+                        try {
+                            unlock.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            });
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+            Future<?> second = threads.submit(new Runnable() {
+                public void run() {
+                    synchronized (app) {
+                        confirm();
+                    }
+                }
+            });
+            second.get(5, TimeUnit.SECONDS);
+            assertEquals(1, scheduler.getDiscardedCount());
+            assertTrue(rejectedDialogs.isEmpty());
+        } finally {
+            unlock.countDown();
+            threads.shutdown();
+        }
+
+        synchronized (other) {
+            assertSame(other.getMainWindow(), queued.getParent());
+        }
+        context.request(other);
+        assertEquals(1, rejectedDialogs.size());
+        assertSame(queued, rejectedDialogs.get(0));
+        synchronized (other) {
+            assertTrue(other.getMainWindow().getChildWindows().isEmpty());
+        }
+
+        release.countDown();
+        awaitCompleted(2);
+    }
+
+    @Test
+    public void waitingActionsSurviveGarbageCollection() throws Exception {
+        setScheduler(new ConfirmedActionScheduler(1, 1, 2,
+                ConfirmedActionScheduler.RejectionPolicy.DISCARD_OLDEST,
+                Executors.defaultThreadFactory()));
+        confirm();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        // Without a context only its own actions refer to the slot
+        Window other = DialogTestSupport.createMainWindow();
+        ConfirmDialog discarded = confirm(other);
+        confirm(other);
+        confirm(DialogTestSupport.createMainWindow());
+        confirm(DialogTestSupport.createMainWindow());
+        assertEquals(1, scheduler.getDiscardedCount());
+        System.gc();
+        System.gc();
+
+        release.countDown();
+        awaitCompleted(3);
+        confirm(other);
+        awaitCompleted(5);
+        assertEquals(1, rejectedDialogs.size());
+        assertSame(discarded, rejectedDialogs.get(0));
+        synchronized (other.getApplication()) {
+            assertTrue(other.getChildWindows().isEmpty());
+        }
+    }
+
+    @Test
+    public void withoutSchedulerActionRunsInline() {
+        ConfirmDialog.setActionScheduler(null);
+        final boolean[] run = new boolean[1];
+        ConfirmDialog d = ConfirmDialog.show(main, null, "Delete?", null,
+                null, new Runnable() {
+                    public void run() {
+                        run[0] = true;
+                    }
+                });
+        DialogTestSupport.click(d.getOkButton());
+        assertTrue(run[0]);
+        assertTrue(main.getChildWindows().isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Allocation budget of {@link DefaultConfirmDialogFactory#create}.
+ *
+ * The budget covers the component tree of a dialog. Listeners and size
+ * formatting must not add to it.
+ */
+public class TestCreateAllocation {
+
+    /** Agreed maximum of bytes allocated per created dialog. */
+    static final long MAX_BYTES_PER_CREATE = 10 * 1024;
+
+    private static final int WARMUP = 5000;
+    private static final int ROUNDS = 500;
+
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void createStaysWithinBudget() {
+        DefaultConfirmDialogFactory factory = new DefaultConfirmDialogFactory();
+        for (int i = 0; i < WARMUP; i++) {
+            factory.create(null, "Are You sure?", null, null);
+        }
+
+        long start = allocatedBytes();
+        for (int i = 0; i < ROUNDS; i++) {
+            factory.create(null, "Are You sure?", null, null);
+        }
+        long perCreate = (allocatedBytes() - start) / ROUNDS;
+
+        assertTrue("create() allocated " + perCreate + " bytes, budget is "
+                + MAX_BYTES_PER_CREATE, perCreate <= MAX_BYTES_PER_CREATE);
+    }
+}
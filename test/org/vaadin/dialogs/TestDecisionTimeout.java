@@ -0,0 +1,106 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * Dialogs not decided in time are cancelled by the application sweeper.
+ */
+@SuppressWarnings("serial")
+public class TestDecisionTimeout {
+
+    private Application app;
+    private Window main;
+    private final List<ConfirmDialog.Outcome> outcomes = new ArrayList<ConfirmDialog.Outcome>();
+
+    private final ConfirmDialog.Listener recorder = new ConfirmDialog.Listener() {
+        public void onClose(ConfirmDialog dialog) {
+            outcomes.add(dialog.getOutcome());
+        }
+    };
+
+    @Before
+    public void setUp() {
+        app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+    }
+
+    private ConfirmDialog show(long timeout) {
+        return ConfirmDialog.show(main, null, "Are You sure?", null, null,
+                recorder, timeout);
+    }
+
+    private void awaitClosed(ConfirmDialog d) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (d.getState() != ConfirmDialog.State.CLOSED
+                && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void undecidedDialogTimesOut() throws InterruptedException {
+        ConfirmDialog d = show(50);
+        assertTrue(d.getExpiryTime() > 0);
+        awaitClosed(d);
+
+        assertEquals(ConfirmDialog.State.CLOSED, d.getState());
+        assertEquals(ConfirmDialog.Outcome.TIMED_OUT, d.getOutcome());
+        assertFalse(d.isConfirmed());
+        assertNull(d.getParent());
+        assertTrue(main.getChildWindows().isEmpty());
+        assertEquals(1, outcomes.size());
+        assertEquals(ConfirmDialog.Outcome.TIMED_OUT, outcomes.get(0));
+    }
+
+    @Test
+    public void decidedDialogIsNotCancelled() throws InterruptedException {
+        ConfirmDialog d = show(50);
+        DialogTestSupport.click(d.getOkButton());
+        Thread.sleep(150);
+
+        assertEquals(ConfirmDialog.Outcome.CONFIRMED, d.getOutcome());
+        assertEquals(1, outcomes.size());
+    }
+
+    @Test
+    public void dialogsShareOneSweeper() throws InterruptedException {
+        ConfirmDialog last = null;
+        for (int i = 0; i < 50; i++) {
+            last = show(100 + i);
+        }
+        assertEquals(50, DialogExpirySweeper.getScheduledCount(app));
+
+        int timers = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if ("ConfirmDialog expiry".equals(t.getName())) {
+                timers++;
+            }
+        }
+        assertEquals(1, timers);
+
+        awaitClosed(last);
+        assertEquals(50, outcomes.size());
+        assertEquals(0, DialogExpirySweeper.getScheduledCount(app));
+        assertTrue(main.getChildWindows().isEmpty());
+    }
+
+    @Test
+    public void noTimeoutByDefault() {
+        ConfirmDialog d = ConfirmDialog.show(main, "Are You sure?", recorder);
+        assertEquals(0, d.getExpiryTime());
+        assertEquals(0, DialogExpirySweeper.getScheduledCount(app));
+    }
+}
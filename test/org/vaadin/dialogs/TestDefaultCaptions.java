@@ -0,0 +1,101 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * Localized default captions.
+ */
+public class TestDefaultCaptions {
+
+    private static ConfirmDialog showIn(Locale locale) {
+        Application app = new DialogTestSupport.TestApplication();
+        app.setLocale(locale);
+        Window main = new Window();
+        app.setMainWindow(main);
+        return ConfirmDialog.show(main, new DialogTestSupport.Counter());
+    }
+
+    @Test
+    public void captionsFollowApplicationLocale() {
+        ConfirmDialog d = showIn(new Locale("fi", "FI"));
+        assertEquals("Vahvista", d.getCaption());
+        assertEquals("Oletko varma?", d.getMessage());
+        assertEquals("OK", d.getOkButton().getCaption());
+        assertEquals("Peruuta", d.getCancelButton().getCaption());
+    }
+
+    @Test
+    public void unknownLocaleUsesEnglish() {
+        ConfirmDialog d = showIn(new Locale("xx"));
+        assertEquals("Confirm", d.getCaption());
+        assertEquals("Are You sure?", d.getMessage());
+        assertEquals("Ok", d.getOkButton().getCaption());
+        assertEquals("Cancel", d.getCancelButton().getCaption());
+    }
+
+    @Test
+    public void explicitCaptionsAreKept() {
+        Application app = new DialogTestSupport.TestApplication();
+        app.setLocale(Locale.GERMAN);
+        Window main = new Window();
+        app.setMainWindow(main);
+        ConfirmDialog d = ConfirmDialog.show(main, "Delete?",
+                new DialogTestSupport.Counter());
+        assertEquals("Delete?", d.getMessage());
+        assertEquals("Abbrechen", d.getCancelButton().getCaption());
+    }
+
+    @Test
+    public void factoryUsesItsLocaleWithoutApplication() {
+        DefaultConfirmDialogFactory factory = new DefaultConfirmDialogFactory();
+        factory.setLocale(new Locale("sv"));
+        ConfirmDialog d = factory.create(null, null, null, null);
+        assertEquals("Bekr\u00e4fta", d.getCaption());
+        assertEquals("Avbryt", d.getCancelButton().getCaption());
+
+        DialogTemplate template = factory.createTemplate(Locale.GERMAN, null,
+                "Delete?", null, null);
+        assertEquals("Abbrechen", template.getCancelCaption());
+    }
+
+    @Test
+    public void otherFactoriesAreGivenNull() {
+        final String[] given = new String[4];
+        ConfirmDialog.Factory previous = ConfirmDialog.getFactory();
+        ConfirmDialog.setFactory(new ConfirmDialog.Factory() {
+            private static final long serialVersionUID = 1L;
+
+            public ConfirmDialog create(String windowCaption, String message,
+                    String okTitle, String cancelTitle) {
+                given[0] = windowCaption;
+                given[1] = message;
+                given[2] = okTitle;
+                given[3] = cancelTitle;
+                return new DefaultConfirmDialogFactory().create(windowCaption,
+                        message, okTitle, cancelTitle);
+            }
+        });
+        try {
+            showIn(Locale.GERMAN);
+            assertArrayEquals(new String[4], given);
+        } finally {
+            ConfirmDialog.setFactory(previous);
+        }
+    }
+
+    @Test
+    public void captionSetsAreCached() {
+        assertSame(DefaultCaptions.get(Locale.FRENCH),
+                DefaultCaptions.get(Locale.FRENCH));
+        assertSame(DefaultCaptions.ENGLISH, DefaultCaptions.get(null));
+    }
+}
@@ -0,0 +1,124 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * All close paths remove the dialog and notify the listener once.
+ */
+@SuppressWarnings("serial")
+public class TestDialogClosing {
+
+    private Window main;
+    private int notified;
+
+    private final ConfirmDialog.Listener counter = new ConfirmDialog.Listener() {
+        public void onClose(ConfirmDialog dialog) {
+            notified++;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        Application app = new Application() {
+            @Override
+            public void init() {
+            }
+        };
+        main = new Window();
+        app.setMainWindow(main);
+        notified = 0;
+    }
+
+    private ConfirmDialog show() {
+        ConfirmDialog d = new DefaultConfirmDialogFactory().create(null,
+                "Are You sure?", null, null);
+        d.show(main, counter, true);
+        assertEquals(1, main.getChildWindows().size());
+        return d;
+    }
+
+    private void assertClosed(ConfirmDialog d, boolean confirmed) {
+        assertEquals(ConfirmDialog.State.CLOSED, d.getState());
+        assertFalse(d.isPending());
+        assertTrue(d.isEnabled());
+        assertNull(d.getParent());
+        assertTrue(main.getChildWindows().isEmpty());
+        assertEquals(1, notified);
+        assertEquals(confirmed, d.isConfirmed());
+    }
+
+    @Test
+    public void lifecycle() {
+        ConfirmDialog d = new DefaultConfirmDialogFactory().create(null,
+                "Are You sure?", null, null);
+        assertEquals(ConfirmDialog.State.CREATED, d.getState());
+        assertTrue(d.isPending());
+        d.show(main, new ConfirmDialog.Listener() {
+            public void onClose(ConfirmDialog dialog) {
+                assertEquals(ConfirmDialog.State.DECIDED, dialog.getState());
+                assertFalse(dialog.isPending());
+            }
+        }, true);
+        assertEquals(ConfirmDialog.State.SHOWN, d.getState());
+        assertTrue(d.isPending());
+        DialogTestSupport.click(d.getOkButton());
+        assertEquals(ConfirmDialog.State.CLOSED, d.getState());
+        assertTrue(d.isConfirmed());
+    }
+
+    @Test
+    public void decidedOnlyOnce() {
+        ConfirmDialog d = show();
+        assertTrue(d.decide(true));
+        assertFalse(d.decide(false));
+        assertTrue(d.isConfirmed());
+    }
+
+    @Test
+    public void directStrategyIsResolved() {
+        assertEquals(WindowCompat.Strategy.DIRECT, WindowCompat.getStrategy());
+    }
+
+    @Test
+    public void okButton() {
+        ConfirmDialog d = show();
+        DialogTestSupport.click(d.getOkButton());
+        assertClosed(d, true);
+    }
+
+    @Test
+    public void cancelButton() {
+        ConfirmDialog d = show();
+        DialogTestSupport.click(d.getCancelButton());
+        assertClosed(d, false);
+    }
+
+    @Test
+    public void windowCloseButton() {
+        ConfirmDialog d = show();
+        d.changeVariables(d,
+                Collections.<String, Object> singletonMap("close", true));
+        assertClosed(d, false);
+    }
+
+    @Test
+    public void programmaticClose() {
+        ConfirmDialog d = show();
+        d.close();
+        assertClosed(d, false);
+        d.close();
+        assertEquals(1, notified);
+        assertFalse(d.isConfirmed());
+    }
+}
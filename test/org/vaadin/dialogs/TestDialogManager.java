@@ -0,0 +1,154 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * Queueing, coalescing and limiting the dialogs of a window.
+ */
+public class TestDialogManager {
+
+    private Window main;
+    private DialogManager manager;
+
+    @Before
+    public void setUp() {
+        Application app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+        manager = new DialogManager(main);
+    }
+
+    @Test
+    public void duplicatesShareOneDialog() {
+        DialogTestSupport.Counter first = new DialogTestSupport.Counter();
+        DialogTestSupport.Counter second = new DialogTestSupport.Counter();
+        ConfirmDialog d = manager.confirm("Delete?", first);
+        assertSame(d, manager.confirm("Delete?", second));
+        assertEquals(1, main.getChildWindows().size());
+
+        DialogTestSupport.click(d.getOkButton());
+        assertEquals(1, first.confirmed);
+        assertEquals(1, second.confirmed);
+        assertEquals(0, manager.getOpenCount());
+        assertTrue(main.getChildWindows().isEmpty());
+    }
+
+    @Test
+    public void requestsAreQueued() {
+        DialogTestSupport.Counter counter = new DialogTestSupport.Counter();
+        ConfirmDialog first = manager.confirm("first", null, "Delete?", null,
+                null, counter);
+        assertNull(manager.confirm("second", null, "Delete?", null, null,
+                counter));
+        // Coalesced into the queued request
+        assertNull(manager.confirm("second", null, "Delete?", null, null,
+                counter));
+        assertEquals(1, manager.getOpenCount());
+        assertEquals(1, manager.getQueuedCount());
+        assertEquals(1, main.getChildWindows().size());
+
+        DialogTestSupport.click(first.getOkButton());
+        assertEquals(1, counter.confirmed);
+        assertEquals(0, manager.getQueuedCount());
+        assertEquals(1, main.getChildWindows().size());
+
+        ConfirmDialog second = (ConfirmDialog) main.getChildWindows()
+                .iterator().next();
+        DialogTestSupport.click(second.getOkButton());
+        assertEquals(3, counter.confirmed);
+        assertTrue(main.getChildWindows().isEmpty());
+    }
+
+    @Test
+    public void openDialogsAreLimited() {
+        manager.setMaxOpen(2);
+        manager.setMaxQueued(1);
+        assertNotNull(manager.confirm("a", null));
+        assertNotNull(manager.confirm("b", null));
+        assertNull(manager.confirm("c", null));
+        try {
+            manager.confirm("d", null);
+            fail();
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(2, main.getChildWindows().size());
+    }
+
+    @Test
+    public void managerPerWindow() {
+        assertSame(DialogManager.forWindow(main),
+                DialogManager.forWindow(main));
+        assertSame(main, DialogManager.forWindow(main).getWindow());
+
+        // The window data is left to the application
+        Window other = new Window();
+        other.setData("in use");
+        assertNotSame(DialogManager.forWindow(main),
+                DialogManager.forWindow(other));
+        assertEquals("in use", other.getData());
+    }
+
+    @Test
+    public void managerIsSerializedWithWindow() throws Exception {
+        DialogTestSupport.Counter counter = new DialogTestSupport.Counter();
+        DialogManager.forWindow(main).confirm("first", counter);
+        DialogManager.forWindow(main).confirm("second", counter);
+
+        Application copy = (Application) TestSerialization
+                .deserialize(TestSerialization.serialize(main
+                        .getApplication()));
+        Window window = copy.getMainWindow();
+        DialogManager m = DialogManager.forWindow(window);
+        assertSame(window, m.getWindow());
+        assertEquals(1, m.getOpenCount());
+        assertEquals(1, m.getQueuedCount());
+
+        DialogTester.confirm(window);
+        assertEquals(1, m.getOpenCount());
+        assertEquals(0, m.getQueuedCount());
+    }
+
+    @Test
+    public void closedWindowClosesRequests() {
+        final List<ConfirmDialog.Outcome> outcomes = new ArrayList<ConfirmDialog.Outcome>();
+        ConfirmDialog.Listener listener = new ConfirmDialog.Listener() {
+            private static final long serialVersionUID = 1L;
+
+            public void onClose(ConfirmDialog dialog) {
+                outcomes.add(dialog.getOutcome());
+            }
+        };
+        Window other = new Window();
+        main.getApplication().addWindow(other);
+        DialogManager m = new DialogManager(other);
+        m.confirm("open", listener);
+        m.confirm("queued", listener);
+
+        // Closed in the browser
+        other.changeVariables(other,
+                Collections.<String, Object> singletonMap("close", true));
+        assertEquals(Arrays.asList(ConfirmDialog.Outcome.CLOSED,
+                ConfirmDialog.Outcome.CLOSED), outcomes);
+        assertEquals(0, m.getOpenCount());
+        assertEquals(0, m.getQueuedCount());
+    }
+}
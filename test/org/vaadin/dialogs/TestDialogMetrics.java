@@ -0,0 +1,134 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * Lifecycle counters, latencies and the JMX export.
+ */
+public class TestDialogMetrics {
+
+    private Window main;
+    private DialogMetrics metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        Application app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+        metrics = DialogMetrics.install();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        metrics.uninstall();
+    }
+
+    private ConfirmDialog show() {
+        return ConfirmDialog.show(main, "Are You sure?",
+                new DialogTestSupport.Counter());
+    }
+
+    @Test
+    public void lifecycleIsCounted() {
+        ConfirmDialog confirmed = show();
+        ConfirmDialog cancelled = show();
+        ConfirmDialog closed = show();
+        assertEquals(3, metrics.getCreatedCount());
+        assertEquals(3, metrics.getShownCount());
+        assertEquals(3, metrics.getOpenCount());
+
+        DialogTestSupport.click(confirmed.getOkButton());
+        DialogTestSupport.click(cancelled.getCancelButton());
+        closed.changeVariables(closed,
+                Collections.<String, Object> singletonMap("close", true));
+
+        assertEquals(ConfirmDialog.Outcome.CONFIRMED, confirmed.getOutcome());
+        assertEquals(ConfirmDialog.Outcome.CANCELLED, cancelled.getOutcome());
+        assertEquals(ConfirmDialog.Outcome.CLOSED, closed.getOutcome());
+        assertEquals(1, metrics.getConfirmedCount());
+        assertEquals(1, metrics.getCancelledCount());
+        assertEquals(1, metrics.getClosedCount());
+        assertEquals(0, metrics.getOpenCount());
+        assertTrue(metrics.getCreateMaxMillis() > 0);
+    }
+
+    @Test
+    public void openCountIsNotNegative() throws Exception {
+        metrics.uninstall();
+        ConfirmDialog before = show();
+        metrics = DialogMetrics.install();
+        ConfirmDialog after = show();
+        assertEquals(1, metrics.getOpenCount());
+
+        DialogTestSupport.click(before.getOkButton());
+        assertEquals(1, metrics.getOpenCount());
+        DialogTestSupport.click(after.getOkButton());
+        assertEquals(0, metrics.getOpenCount());
+        assertEquals(2, metrics.getConfirmedCount());
+    }
+
+    @Test
+    public void detachedDialogIsNotOpen() {
+        // No factory close listener decides the removed dialog
+        ConfirmDialog pending = new ConfirmDialog();
+        pending.show(main, null, true);
+        assertEquals(1, metrics.getOpenCount());
+        main.removeWindow(pending);
+        assertNull(pending.getOutcome());
+        assertEquals(0, metrics.getOpenCount());
+    }
+
+    @Test
+    public void resetKeepsOpenCount() {
+        show();
+        metrics.reset();
+        assertEquals(0, metrics.getShownCount());
+        assertEquals(1, metrics.getOpenCount());
+    }
+
+    @Test
+    public void factoryCreationIsCounted() {
+        new DefaultConfirmDialogFactory().create("Confirm", "Delete?", "Ok",
+                "Cancel");
+        new LightweightConfirmDialogFactory().create(null, null, null, null);
+        assertEquals(2, metrics.getCreatedCount());
+    }
+
+    @Test
+    public void metricsAreExportedToJmx() throws Exception {
+        show();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(DialogMetrics.OBJECT_NAME);
+        assertEquals(1L, server.getAttribute(name, "ShownCount"));
+        assertEquals(1L, server.getAttribute(name, "OpenCount"));
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            h.record(i * 1000000L);
+        }
+        assertEquals(100, h.getCount());
+        assertEquals(50.5, h.getMeanMillis(), 0.001);
+        assertEquals(100.0, h.getMaxMillis(), 0.001);
+        double p50 = h.getPercentileMillis(50);
+        assertTrue(p50 >= 50 && p50 <= 100);
+        assertEquals(100.0, h.getPercentileMillis(100), 0.001);
+    }
+}
@@ -0,0 +1,90 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * Dialogs built from a shared template reference its values.
+ */
+public class TestDialogTemplate {
+
+    private static final String MESSAGE;
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            sb.append("The selected records & their \"history\" <b>cannot</b>"
+                    + " be restored once deleted.\n");
+        }
+        MESSAGE = sb.append("Delete the records?").toString();
+    }
+
+    private static final DialogTemplate DELETE = new DefaultConfirmDialogFactory()
+            .createTemplate("Delete", MESSAGE, "Delete", "Cancel");
+
+    private static Window newSession() {
+        Application app = new DialogTestSupport.TestApplication();
+        Window main = new Window();
+        app.setMainWindow(main);
+        return main;
+    }
+
+    @Test
+    public void dialogReferencesTemplate() {
+        Window main = newSession();
+        ConfirmDialog d = ConfirmDialog.show(main, DELETE,
+                new DialogTestSupport.Counter());
+
+        assertSame(DELETE, d.getDialogTemplate());
+        assertSame(DELETE.getEscapedMessage(), d.getMessageLabel().getValue());
+        assertSame(DELETE.getMessage(), d.getMessage());
+        assertSame(DELETE.getCaption(), d.getCaption());
+        assertSame(DELETE.getOkCaption(), d.getOkButton().getCaption());
+
+        ConfirmDialog plain = ConfirmDialog.show(main, "Delete", MESSAGE,
+                "Delete", "Cancel", new DialogTestSupport.Counter());
+        assertEquals(plain.getMessageLabel().getValue(), d.getMessageLabel()
+                .getValue());
+        assertEquals(plain.getWidth(), d.getWidth(), 0f);
+        assertEquals(plain.getHeight(), d.getHeight(), 0f);
+
+        d.setContentMode(ConfirmDialog.CONTENT_TEXT);
+        assertSame(MESSAGE, d.getMessageLabel().getValue());
+        d.setContentMode(ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES);
+        assertSame(DELETE.getEscapedMessage(), d.getMessageLabel().getValue());
+
+        d.setMessage("Other");
+        assertNull(d.getDialogTemplate());
+    }
+
+    @Test
+    public void defaultsAreFilled() {
+        DialogTemplate t = new DefaultConfirmDialogFactory().createTemplate(
+                null, null, null, null);
+        assertEquals("Confirm", t.getCaption());
+        assertEquals("Are You sure?", t.getMessage());
+        assertEquals("Ok", t.getOkCaption());
+        assertEquals("Cancel", t.getCancelCaption());
+        assertTrue(t.getWidth() > 0f && t.getHeight() > 0f);
+    }
+
+    @Test
+    public void sessionsShareTemplateValues() {
+        ConfirmDialog first = ConfirmDialog.show(newSession(), DELETE, null);
+        ConfirmDialog second = ConfirmDialog.show(newSession(), DELETE, null);
+        assertSame(first.getMessageLabel().getValue(), second
+                .getMessageLabel().getValue());
+        assertSame(first.getMessage(), second.getMessage());
+        assertSame(first.getCaption(), second.getCaption());
+        assertSame(first.getCancelButton().getCaption(), second
+                .getCancelButton().getCaption());
+        assertEquals(first.getWidth(), second.getWidth(), 0f);
+        assertEquals(first.getHeight(), second.getHeight(), 0f);
+    }
+}
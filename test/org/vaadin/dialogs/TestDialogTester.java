@@ -0,0 +1,109 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * Dialogs are driven through the same code paths as browser clicks.
+ */
+public class TestDialogTester {
+
+    private Application app;
+    private Window main;
+    private final List<ConfirmDialog.Outcome> outcomes = new ArrayList<ConfirmDialog.Outcome>();
+
+    private final ConfirmDialog.Listener listener = new ConfirmDialog.Listener() {
+        private static final long serialVersionUID = 1L;
+
+        public void onClose(ConfirmDialog dialog) {
+            outcomes.add(dialog.getOutcome());
+        }
+    };
+
+    @Before
+    public void setUp() {
+        app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+    }
+
+    @Test
+    public void confirmCancelAndClose() {
+        ConfirmDialog.show(main, "First?", listener);
+        ConfirmDialog second = ConfirmDialog.show(main, "Second?", listener);
+        assertEquals(2, DialogTester.findDialogs(main).size());
+        assertSame(second, DialogTester.findDialog(main));
+
+        assertSame(second, DialogTester.confirm(main));
+        assertEquals("First?", DialogTester.cancel(main).getMessage());
+        ConfirmDialog.show(main, "Third?", listener);
+        DialogTester.close(main);
+
+        assertEquals(0, DialogTester.findDialogs(main).size());
+        assertEquals(3, outcomes.size());
+        assertSame(ConfirmDialog.Outcome.CONFIRMED, outcomes.get(0));
+        assertSame(ConfirmDialog.Outcome.CANCELLED, outcomes.get(1));
+        assertSame(ConfirmDialog.Outcome.CLOSED, outcomes.get(2));
+    }
+
+    @Test
+    public void findFromSubWindow() {
+        Window sub = new Window();
+        main.addWindow(sub);
+        ConfirmDialog d = ConfirmDialog.show(main, "Sure?", listener);
+        assertSame(d, DialogTester.findDialog(sub));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void noDialog() {
+        DialogTester.confirm(main);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void disabledButtonCannotBeClicked() {
+        ConfirmDialog d = ConfirmDialog.show(main, "Sure?", listener);
+        d.getOkButton().setEnabled(false);
+        DialogTester.confirm(d);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedDialogCannotBeClicked() {
+        ConfirmDialog d = ConfirmDialog.show(main, "Sure?", listener);
+        DialogTester.cancel(d);
+        DialogTester.confirm(d);
+    }
+
+    @Test
+    public void confirmButton() {
+        ConfirmButton button = new ConfirmButton("Delete", "Delete?", listener);
+        main.addComponent(button);
+        DialogTester.decide(button, false);
+        assertEquals(1, outcomes.size());
+        assertSame(ConfirmDialog.Outcome.CANCELLED, outcomes.get(0));
+    }
+
+    @Test
+    public void thousandsOfFlows() {
+        int flows = 5000;
+        for (int i = 0; i < flows; i++) {
+            ConfirmDialog.show(main, "Delete item " + i + "?", listener);
+            if (i % 2 == 0) {
+                DialogTester.confirm(main);
+            } else {
+                DialogTester.cancel(main);
+            }
+        }
+        assertEquals(flows, outcomes.size());
+        assertTrue(DialogTester.findDialogs(main).isEmpty());
+    }
+}
@@ -0,0 +1,130 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * Factory resolution and concurrent use of the factory registry.
+ */
+@SuppressWarnings("serial")
+public class TestFactoryRegistry {
+
+    static class CountingFactory extends DefaultConfirmDialogFactory {
+        final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public ConfirmDialog create(String caption, String message,
+                String okCaption, String cancelCaption) {
+            created.incrementAndGet();
+            return super.create(caption, message, okCaption, cancelCaption);
+        }
+    }
+
+    static Application newApplication() {
+        Application app = new DialogTestSupport.TestApplication();
+        app.setMainWindow(new Window());
+        return app;
+    }
+
+    @After
+    public void tearDown() {
+        ConfirmDialog.setFactory(null);
+    }
+
+    @Test
+    public void resolutionOrder() {
+        FactoryRegistry registry = new FactoryRegistry();
+        Application app = newApplication();
+        Application other = newApplication();
+        ConfirmDialog.Factory appFinnish = new DefaultConfirmDialogFactory();
+        ConfirmDialog.Factory appAny = new DefaultConfirmDialogFactory();
+        ConfirmDialog.Factory german = new DefaultConfirmDialogFactory();
+
+        ConfirmDialog.Factory defaultFactory = registry.getDefaultFactory();
+        assertSame(defaultFactory, registry.getFactory(app));
+
+        registry.register(app, new Locale("fi"), appFinnish);
+        registry.register(app, null, appAny);
+        registry.register(null, Locale.GERMAN, german);
+
+        assertSame(appFinnish, registry.getFactory(app, new Locale("fi", "FI")));
+        assertSame(appAny, registry.getFactory(app, Locale.ENGLISH));
+        assertSame(appAny, registry.getFactory(app, null));
+        assertSame(german, registry.getFactory(other, Locale.GERMANY));
+        assertSame(defaultFactory, registry.getFactory(other, Locale.ENGLISH));
+        assertSame(defaultFactory, registry.getFactory(null, null));
+
+        app.setLocale(new Locale("fi"));
+        assertSame(appFinnish, registry.getFactory(app));
+
+        registry.unregister(app, null);
+        assertSame(defaultFactory, registry.getFactory(app, Locale.ENGLISH));
+    }
+
+    @Test
+    public void concurrentShow() throws Exception {
+        final int threads = 32;
+        final int rounds = 50;
+        ConfirmDialog.setFactory(null);
+
+        final CyclicBarrier start = new CyclicBarrier(threads);
+        final Set<ConfirmDialog.Factory> defaults = Collections
+                .synchronizedSet(Collections
+                        .newSetFromMap(new IdentityHashMap<ConfirmDialog.Factory, Boolean>()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int t = 0; t < threads; t++) {
+            final boolean custom = t % 2 == 0;
+            results.add(pool.submit(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    Application app = newApplication();
+                    CountingFactory factory = new CountingFactory();
+                    if (custom) {
+                        ConfirmDialog.getFactoryRegistry().register(app, null,
+                                factory);
+                    }
+                    start.await();
+                    defaults.add(ConfirmDialog.getFactory());
+                    for (int i = 0; i < rounds; i++) {
+                        ConfirmDialog d = ConfirmDialog.show(
+                                app.getMainWindow(), "Message " + i,
+                                (ConfirmDialog.Listener) null);
+                        DialogTestSupport.click(d.getOkButton());
+                    }
+                    assertTrue(app.getMainWindow().getChildWindows().isEmpty());
+                    return factory.created.get();
+                }
+            }));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+        for (int t = 0; t < threads; t++) {
+            assertEquals(t % 2 == 0 ? rounds : 0, results.get(t).get()
+                    .intValue());
+        }
+        assertEquals(1, defaults.size());
+        assertSame(ConfirmDialog.getFactory(), defaults.iterator().next());
+    }
+}
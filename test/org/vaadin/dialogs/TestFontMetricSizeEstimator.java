@@ -0,0 +1,126 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for the default dialog size estimator.
+ */
+public class TestFontMetricSizeEstimator {
+
+    private final FontMetricSizeEstimator estimator = new FontMetricSizeEstimator();
+
+    private double[] estimate(String message, int contentMode) {
+        return estimator.estimate(message, contentMode, 0d, 40d, 0d, 30d);
+    }
+
+    @Test
+    public void boundsAreObeyed() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append("Very long line of text that will wrap in the dialog, ");
+            sb.append("because it is wider than the maximum width\n");
+        }
+        double[] max = estimator.estimate(sb.toString(),
+                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES, 20d, 40d, 1d, 30d);
+        assertArrayEquals(new double[] { 40d, 30d }, max, 0d);
+
+        double[] min = estimator.estimate("", ConfirmDialog.CONTENT_DEFAULT,
+                20d, 40d, 1d, 30d);
+        assertArrayEquals(new double[] { 20d, 1d }, min, 0d);
+        assertArrayEquals(min, estimator.estimate(null,
+                ConfirmDialog.CONTENT_DEFAULT, 20d, 40d, 1d, 30d), 0d);
+    }
+
+    @Test
+    public void newlinesAddRows() {
+        assertEquals(2d, estimate("one", ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES)[1], 0d);
+        assertEquals(5d, estimate("one\ntwo\nthree",
+                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES)[1], 0d);
+        assertEquals(3d, estimate("one\r\ntwo",
+                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES)[1], 0d);
+        assertEquals(6d, estimate("one\rtwo\r\n\rthree",
+                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES)[1], 0d);
+        assertEquals(estimate("one\ntwo",
+                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES)[0], estimate(
+                "one\r\ntwo", ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES)[0], 0d);
+        assertArrayEquals(estimate("a\nb\nc",
+                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES), estimator.estimate(
+                MessageTemplate.compile("a\r\n{0}\rc"), new Object[] { "b" },
+                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES, 0d, 40d, 0d, 30d),
+                1e-9);
+        assertEquals(2d, estimate("one\ntwo\nthree",
+                ConfirmDialog.CONTENT_TEXT)[1], 0d);
+    }
+
+    @Test
+    public void widthFollowsLongestLine() {
+        double[] oneLine = estimate("aaaaaaaaaa",
+                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES);
+        double[] twoLines = estimate("aaaaaaaaaa\naaaaa",
+                ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES);
+        assertEquals(5d, oneLine[0], 0.001d);
+        assertEquals(oneLine[0], twoLines[0], 0d);
+    }
+
+    @Test
+    public void characterWidths() {
+        double narrow = estimate("iiiiiiiiii", ConfirmDialog.CONTENT_TEXT)[0];
+        double normal = estimate("aaaaaaaaaa", ConfirmDialog.CONTENT_TEXT)[0];
+        double wide = estimate("WWWWWWWWWW", ConfirmDialog.CONTENT_TEXT)[0];
+        double cjk = estimate("\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d",
+                ConfirmDialog.CONTENT_TEXT)[0];
+        assertTrue(narrow < normal);
+        assertTrue(normal < wide);
+        assertTrue(wide < cjk);
+    }
+
+    @Test
+    public void htmlMarkupIsIgnored() {
+        double[] text = estimate("Delete <b>all</b> &amp; more?",
+                ConfirmDialog.CONTENT_TEXT);
+        double[] html = estimate("Delete <b>all</b> &amp; more?",
+                ConfirmDialog.CONTENT_HTML);
+        double[] plain = estimate("Delete all & more?",
+                ConfirmDialog.CONTENT_TEXT);
+        assertTrue(html[0] < text[0]);
+        assertEquals(plain[0], html[0], 0.001d);
+
+        double[] list = estimate("Delete:<ul><li>one</li><li>two</li></ul>",
+                ConfirmDialog.CONTENT_HTML);
+        assertEquals(5d, list[1], 0d);
+        assertEquals(3d, estimate("one<br>two", ConfirmDialog.CONTENT_HTML)[1],
+                0d);
+    }
+
+    @Test
+    public void estimatesAreCached() {
+        double[] first = estimate("Are You sure?", ConfirmDialog.CONTENT_DEFAULT);
+        first[0] = -1d;
+        double[] second = estimate("Are You sure?",
+                ConfirmDialog.CONTENT_DEFAULT);
+        assertTrue(second[0] > 0d);
+        assertArrayEquals(second, new FontMetricSizeEstimator(0).estimate(
+                "Are You sure?", ConfirmDialog.CONTENT_DEFAULT, 0d, 40d, 0d,
+                30d), 0d);
+    }
+
+    @Test
+    public void dialogIsSizedInItsContentMode() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            sb.append("<a href=\"https://vaadin.com/\">").append(i)
+                    .append("</a>");
+        }
+        ConfirmDialog d = ConfirmDialog.getFactory().create(null,
+                sb.toString(), null, null);
+        float escaped = d.getWidth();
+        d.setContentMode(ConfirmDialog.CONTENT_HTML);
+        assertTrue(d.getWidth() < escaped);
+        d.setContentMode(ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES);
+        assertEquals(escaped, d.getWidth(), 0f);
+    }
+}
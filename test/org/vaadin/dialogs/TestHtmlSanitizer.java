@@ -0,0 +1,106 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Window;
+
+/**
+ * Allowlist sanitizing of HTML messages.
+ */
+public class TestHtmlSanitizer {
+
+    private static String sanitize(String html) {
+        return HtmlSanitizer.DEFAULT.sanitize(html);
+    }
+
+    @Test
+    public void allowedMarkupIsKept() {
+        assertEquals("<b>Delete</b> <i>all</i> records?<br />",
+                sanitize("<b>Delete</b> <i>all</i> records?<br>"));
+        assertEquals("<ul><li>One</li><li>Two</li></ul>",
+                sanitize("<UL><li>One</LI><li>Two</li></ul>"));
+        assertEquals("", sanitize(null));
+    }
+
+    @Test
+    public void textIsEscaped() {
+        assertEquals("a &lt; b &amp;&amp; c &gt; d &amp; &lt;/ &gt;",
+                sanitize("a < b && c > d & </ >"));
+        assertEquals("&quot;Tom&quot; &amp; &#39;Jerry&#39; &#x263a;",
+                sanitize("&quot;Tom&quot; &amp; &#39;Jerry&#39; &#x263a;"));
+    }
+
+    @Test
+    public void disallowedMarkupIsRemoved() {
+        assertEquals("Hello world", sanitize("<font color=red>Hello</font> "
+                + "<script>alert('<b>x</b>')</script>world"));
+        assertEquals("ab", sanitize("a<!-- <b>comment</b> -->b"));
+        assertEquals("x", sanitize("<style>b { color: red }</STYLE>x"));
+        assertEquals("<b>x</b>",
+                sanitize("<b onclick=\"steal()\" style='x'>x</b>"));
+        assertEquals("a", sanitize("a<img src=x onerror=alert(1)"));
+        assertEquals("<p>x</p>",
+                sanitize("<?xml version=\"1.0\"?><!DOCTYPE html><p>x"));
+    }
+
+    @Test
+    public void onlySafeLinks() {
+        assertEquals("<a href=\"https://vaadin.com/?a=1&amp;b=&quot;2&quot;\">x</a>",
+                sanitize("<a href='https://vaadin.com/?a=1&amp;b=\"2\"'>x</a>"));
+        assertEquals("<a href=\"details.html#top\" title=\"T\">x</a>",
+                sanitize("<a href=details.html#top title=T>x</a>"));
+        assertEquals("<a href=\"mailto:a@b.c\">x</a>",
+                sanitize("<a href=\"mailto:a@b.c\">x</a>"));
+        assertEquals("<a>x</a>",
+                sanitize("<a href=\"javascript:alert(1)\">x</a>"));
+        assertEquals("<a>x</a>",
+                sanitize("<a href=\" java\tscript:alert(1)\">x</a>"));
+        assertEquals("<a>x</a>",
+                sanitize("<a href=\"javascript&#58;alert(1)\">x</a>"));
+        assertEquals("<a>x</a>",
+                sanitize("<a href=\"javascript&colon;alert(1)\">x</a>"));
+        assertEquals("<a>x</a>",
+                sanitize("<a href=\"data:text/html,x\">x</a>"));
+    }
+
+    @Test
+    public void tagsAreBalanced() {
+        assertEquals("<b><i>x</i></b>y", sanitize("<b><i>x</b>y</i>"));
+        assertEquals("x", sanitize("x</p>"));
+        assertEquals("<ul><li>x</li></ul>", sanitize("<ul><li>x"));
+    }
+
+    @Test
+    public void customAllowlist() {
+        HtmlSanitizer s = new HtmlSanitizer("b, span[class]");
+        assertEquals("<b>x</b>i<span class=\"v-red\">y</span>",
+                s.sanitize("<b>x</b><i>i</i><span class=v-red id=z>y</span>"));
+    }
+
+    @Test
+    public void resultsAreCached() {
+        String html = "<b>Delete</b> " + System.nanoTime() + "?";
+        assertSame(sanitize(html), sanitize(new String(html)));
+    }
+
+    @Test
+    public void sanitizedContentMode() {
+        Application app = new DialogTestSupport.TestApplication();
+        Window main = new Window();
+        app.setMainWindow(main);
+        ConfirmDialog d = ConfirmDialog.show(main,
+                "<b>Sure?</b><script>x()</script>", null);
+        d.setContentMode(ConfirmDialog.CONTENT_HTML_SANITIZED);
+        assertEquals("<b>Sure?</b>", d.getMessageLabel().getValue());
+        assertEquals(Label.CONTENT_RAW, d.getMessageLabel().getContentMode());
+
+        d.setMessage("<i onmouseover=x()>Really?</i>");
+        assertEquals("<i>Really?</i>", d.getMessageLabel().getValue());
+        assertEquals("<i onmouseover=x()>Really?</i>", d.getMessage());
+    }
+}
@@ -0,0 +1,182 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.CheckBox;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.ComponentContainer;
+import com.vaadin.ui.Window;
+
+/**
+ * A batch of items is confirmed in a single dialog.
+ */
+public class TestItemSelection {
+
+    private Application app;
+    private Window main;
+    private final List<List<Integer>> results = new ArrayList<List<Integer>>();
+
+    private final ItemSelection.Listener<Integer> listener = new ItemSelection.Listener<Integer>() {
+        private static final long serialVersionUID = 1L;
+
+        public void onClose(ConfirmDialog dialog, List<Integer> selected) {
+            results.add(selected);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+    }
+
+    private static List<Integer> items(int count) {
+        List<Integer> items = new ArrayList<Integer>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ItemSelection<Integer> getSelection(ConfirmDialog d) {
+        ComponentContainer scroll = (ComponentContainer) d.getMessageLabel()
+                .getParent();
+        Iterator<Component> i = scroll.getComponentIterator();
+        while (i.hasNext()) {
+            Component c = i.next();
+            if (c instanceof ItemSelection) {
+                return (ItemSelection<Integer>) c;
+            }
+        }
+        return null;
+    }
+
+    private static void toggle(CheckBox box, boolean value) {
+        // Sent with the next request like from the browser
+        box.changeVariables(box,
+                Collections.<String, Object> singletonMap("state", value));
+    }
+
+    @Test
+    public void selectedSubsetInOneCall() {
+        ConfirmDialog d = ConfirmDialog.showItems(main, "Delete",
+                "Delete these records?", items(5), null, null, listener);
+        ItemSelection<Integer> selection = getSelection(d);
+        toggle(selection.getCheckBox(1), false);
+        toggle(selection.getCheckBox(3), false);
+        assertTrue(results.isEmpty());
+
+        DialogTester.confirm(d);
+        assertEquals(1, results.size());
+        assertEquals(Arrays.asList(0, 2, 4), results.get(0));
+    }
+
+    @Test
+    public void cancelGivesNothing() {
+        ConfirmDialog.showItems(main, null, null, items(5), null, null,
+                listener);
+        DialogTester.cancel(main);
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).isEmpty());
+    }
+
+    @Test
+    public void selectAllAndNoneIncludeUnrenderedItems() {
+        ConfirmDialog d = ConfirmDialog.showItems(main, null, null,
+                items(5000), null, null, listener);
+        ItemSelection<Integer> selection = getSelection(d);
+        assertEquals(PagedMessage.DEFAULT_PAGE_SIZE,
+                selection.getShownItemCount());
+        assertNull(selection.getCheckBox(PagedMessage.DEFAULT_PAGE_SIZE));
+        assertEquals(5000, selection.getSelectedCount());
+
+        DialogTestSupport.click(selection.getSelectNoneButton());
+        assertEquals(0, selection.getSelectedCount());
+        assertFalse(selection.getCheckBox(0).booleanValue());
+
+        toggle(selection.getCheckBox(7), true);
+        DialogTestSupport.click(selection.getShowMoreButton());
+        assertEquals(400, selection.getShownItemCount());
+        toggle(selection.getCheckBox(300), true);
+        selection.setSelected(4999, true);
+        assertTrue(selection.hasMore());
+
+        DialogTester.confirm(d);
+        assertEquals(Arrays.asList(7, 300, 4999), results.get(0));
+    }
+
+    @Test
+    public void onlyFirstPageIsRendered() throws Exception {
+        List<Integer> items = items(5000);
+        ConfirmDialog d = ConfirmDialog.showItems(main, null, null, items,
+                null, null, listener);
+        int pagedSize = DialogTestSupport.paintSize(app, d);
+        ItemSelection<Integer> selection = getSelection(d);
+        while (selection.hasMore()) {
+            selection.showMore();
+        }
+        int fullSize = DialogTestSupport.paintSize(app, d);
+        assertTrue("paged " + pagedSize + " bytes, all rendered " + fullSize
+                + " bytes", pagedSize * 10 < fullSize);
+    }
+
+    @Test
+    public void captionsFollowApplicationLocale() {
+        app.setLocale(new Locale("fi"));
+        ConfirmDialog d = ConfirmDialog.showItems(main, null, null,
+                items(500), null, null, listener);
+        ItemSelection<Integer> selection = getSelection(d);
+        assertEquals("Valitse kaikki", selection.getSelectAllButton()
+                .getCaption());
+        assertEquals("Poista valinnat", selection.getSelectNoneButton()
+                .getCaption());
+        assertEquals("N\u00e4yt\u00e4 lis\u00e4\u00e4", selection
+                .getShowMoreButton().getCaption());
+
+        ConfirmDialog lines = ConfirmDialog.showLines(main, null,
+                Collections.nCopies(500, "Line"), null, null, null);
+        PagedMessage paged = (PagedMessage) lines.getMessageLabel()
+                .getParent();
+        assertEquals("N\u00e4yt\u00e4 lis\u00e4\u00e4", paged
+                .getShowMoreButton().getCaption());
+    }
+
+    @Test
+    public void otherFactoriesConfirmAllItems() {
+        ConfirmDialog.Factory previous = ConfirmDialog.getFactory();
+        ConfirmDialog.setFactory(new ConfirmDialog.Factory() {
+            private static final long serialVersionUID = 1L;
+
+            public ConfirmDialog create(String windowCaption, String message,
+                    String okTitle, String cancelTitle) {
+                return new DefaultConfirmDialogFactory().create(windowCaption,
+                        message, okTitle, cancelTitle);
+            }
+        });
+        try {
+            ConfirmDialog d = ConfirmDialog.showItems(main, null, "Delete?",
+                    items(3), null, null, listener);
+            assertEquals("Delete?\n0\n1\n2", d.getMessage());
+            DialogTester.confirm(d);
+            assertEquals(items(3), results.get(0));
+        } finally {
+            ConfirmDialog.setFactory(previous);
+        }
+    }
+}
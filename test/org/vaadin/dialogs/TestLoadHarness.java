@@ -0,0 +1,40 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vaadin.dialogs.test.ConfirmTestApplication;
+import org.vaadin.dialogs.test.LoadTestHarness;
+
+/**
+ * Small run of the load test harness against the embedded test application.
+ */
+public class TestLoadHarness {
+
+    private Server server;
+
+    @Before
+    public void startServer() throws Exception {
+        server = ConfirmTestApplication.startInEmbeddedJetty(0);
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void sessionsConfirmDialogs() throws Exception {
+        int port = server.getConnectors()[0].getLocalPort();
+        LoadTestHarness.Report report = LoadTestHarness.run(
+                "http://localhost:" + port, 20, 4, 3);
+        assertEquals(report.toString(), 0, report.getErrorCount());
+        // Open and confirm requests of each cycle
+        assertEquals(20 * 3 * 2, report.getRequestCount());
+        assertTrue(report.getRequestsPerSecond() > 0);
+    }
+}
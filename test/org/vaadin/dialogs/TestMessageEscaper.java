@@ -0,0 +1,93 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.vaadin.terminal.gwt.server.JsonPaintTarget;
+import com.vaadin.ui.Label;
+
+/**
+ * Equivalence tests of the single pass escaper against the original
+ * escapeXML + replaceAll implementation.
+ */
+public class TestMessageEscaper {
+
+    private static String original(String text) {
+        return JsonPaintTarget.escapeXML(text).replaceAll("\n", "<br />");
+    }
+
+    private static void assertEquivalent(String text) {
+        assertEquals(original(text), MessageEscaper.escape(text));
+    }
+
+    @Test
+    public void nullAndEmpty() {
+        assertEquals("", MessageEscaper.escape(null));
+        assertEquivalent("");
+    }
+
+    @Test
+    public void plainTextIsNotCopied() {
+        String text = "Are You sure?";
+        assertSame(text, MessageEscaper.escape(text));
+    }
+
+    @Test
+    public void entities() {
+        assertEquivalent("<b>\"Tom\" & 'Jerry'</b>");
+        assertEquivalent("&&&");
+        assertEquivalent("a<");
+        assertEquivalent(">a");
+    }
+
+    @Test
+    public void newlines() {
+        assertEquivalent("\n");
+        assertEquivalent("first\nsecond\n\nfourth\n");
+        assertEquivalent("Delete these?\n<one>\n<two>");
+    }
+
+    @Test
+    public void carriageReturns() {
+        assertEquals("a<br />b<br /><br />c",
+                MessageEscaper.escape("a\r\nb\r\n\r\nc"));
+        assertEquals("a<br />b<br />", MessageEscaper.escape("a\rb\r"));
+        assertEquals("a<br /><br />b", MessageEscaper.escape("a\n\rb"));
+        assertEquals("&lt;<br />&gt;", MessageEscaper.escape("<\r\n>"));
+    }
+
+    @Test
+    public void appendToBuffer() {
+        StringBuilder sb = new StringBuilder("x");
+        MessageEscaper.escape("a&b\nc", sb);
+        assertEquals("x" + original("a&b\nc"), sb.toString());
+    }
+
+    @Test
+    public void randomInput() {
+        char[] alphabet = "ab <>&\"'\n\u00e4\u4e2d".toCharArray();
+        Random r = new Random(42);
+        for (int n = 0; n < 1000; n++) {
+            char[] chars = new char[r.nextInt(200)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = alphabet[r.nextInt(alphabet.length)];
+            }
+            assertEquivalent(new String(chars));
+        }
+    }
+
+    @Test
+    public void dialogRendersEscapedMessageAsHtml() {
+        ConfirmDialog d = new DefaultConfirmDialogFactory().create(null,
+                "a<b\nc", null, null);
+        d.setContentMode(ConfirmDialog.CONTENT_TEXT);
+        assertEquals(Label.CONTENT_TEXT, d.getMessageLabel().getContentMode());
+        d.setContentMode(ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES);
+        assertEquals(Label.CONTENT_RAW, d.getMessageLabel().getContentMode());
+        assertEquals("a&lt;b<br />c", d.getMessageLabel().getValue());
+    }
+}
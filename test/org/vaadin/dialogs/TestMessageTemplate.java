@@ -0,0 +1,111 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Window;
+
+/**
+ * Template messages render and size the same as the formatted messages.
+ */
+public class TestMessageTemplate {
+
+    private static final String[] PATTERNS = { "Delete {0}?",
+            "Delete <b>{0}</b> & {1} more?\nThis cannot be undone.",
+            "{0}{1}", "Line one\n\n{0}\nline {1} of {2}\n",
+            "Not a {parameter} or {} or {12345}", "Reused {0} and {0}", "" };
+
+    private static final Object[][] PARAMS = { {}, { "x" },
+            { "<script>", 3 }, { "a\nb", "\n", "\n\nc" },
+            { "Quite a long record name that wraps to several lines", null } };
+
+    @Test
+    public void onlyParametersAreEscaped() {
+        MessageTemplate t = MessageTemplate.compile("Delete <b>{0}</b>?");
+        assertEquals("Delete &lt;b&gt;&lt;i&gt; &amp; co&lt;/b&gt;?",
+                t.render("<i> & co"));
+        assertEquals("Delete <b><i> & co</b>?", t.format("<i> & co"));
+        assertEquals(1, t.getParameterCount());
+        assertEquals("Delete <b></b>?".length(), t.getFixedLength());
+    }
+
+    @Test
+    public void renderEqualsEscapedFormat() {
+        for (String pattern : PATTERNS) {
+            MessageTemplate t = MessageTemplate.compile(pattern);
+            for (Object[] params : PARAMS) {
+                assertEquals(MessageEscaper.escape(t.format(params)),
+                        t.render(params));
+            }
+        }
+    }
+
+    @Test
+    public void missingParametersAreKept() {
+        MessageTemplate t = MessageTemplate.compile("{0} of {1}");
+        assertEquals("1 of {1}", t.format(1));
+        assertEquals("{0} of {1}", t.format((Object[]) null));
+    }
+
+    @Test
+    public void compiledTemplatesAreCached() {
+        assertSame(MessageTemplate.compile("Remove {0}?"),
+                MessageTemplate.compile(new String("Remove {0}?")));
+    }
+
+    @Test
+    public void estimateEqualsFormattedMessage() {
+        FontMetricSizeEstimator estimator = new FontMetricSizeEstimator(0);
+        FontMetricSizeEstimator cached = new FontMetricSizeEstimator();
+        int[] modes = { ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES,
+                ConfirmDialog.CONTENT_TEXT, ConfirmDialog.CONTENT_HTML };
+        for (String pattern : PATTERNS) {
+            MessageTemplate t = MessageTemplate.compile(pattern);
+            for (Object[] params : PARAMS) {
+                for (int mode : modes) {
+                    double[] expected = estimator.estimate(t.format(params),
+                            mode, 20d, 40d, 1d, 30d);
+                    assertArrayEquals(pattern, expected, estimator.estimate(
+                            t, params, mode, 20d, 40d, 1d, 30d), 1e-9);
+                    assertArrayEquals(pattern, expected, cached.estimate(t,
+                            params, mode, 20d, 40d, 1d, 30d), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void dialogWithTemplateMessage() {
+        Application app = new DialogTestSupport.TestApplication();
+        Window main = new Window();
+        app.setMainWindow(main);
+        MessageTemplate t = MessageTemplate.compile("Delete {0}?\nSure?");
+
+        ConfirmDialog d = ConfirmDialog.show(main, t,
+                new DialogTestSupport.Counter(), "<Tom>");
+        assertSame(t, d.getMessageTemplate());
+        assertEquals("Delete <Tom>?\nSure?", d.getMessage());
+        assertEquals("Delete &lt;Tom&gt;?<br />Sure?", d.getMessageLabel()
+                .getValue());
+
+        ConfirmDialog plain = ConfirmDialog.getFactory().create(null,
+                d.getMessage(), null, null);
+        assertEquals(plain.getWidth(), d.getWidth(), 0f);
+        assertEquals(plain.getHeight(), d.getHeight(), 0f);
+
+        d.setContentMode(ConfirmDialog.CONTENT_TEXT);
+        assertEquals("Delete <Tom>?\nSure?", d.getMessageLabel().getValue());
+        d.setContentMode(ConfirmDialog.CONTENT_TEXT_WITH_NEWLINES);
+        assertEquals("Delete &lt;Tom&gt;?<br />Sure?", d.getMessageLabel()
+                .getValue());
+
+        d.setMessage("Plain");
+        assertNull(d.getMessageTemplate());
+        assertEquals("Plain", d.getMessage());
+    }
+}
@@ -0,0 +1,150 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Window;
+
+/**
+ * Large messages given as lines are rendered one page at a time.
+ */
+public class TestPagedMessage {
+
+    private Application app;
+    private Window main;
+
+    @Before
+    public void setUp() {
+        app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+    }
+
+    private static List<String> lines(int count) {
+        List<String> lines = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add("Item <" + i + "> will be deleted");
+        }
+        return lines;
+    }
+
+    private static PagedMessage getPagedMessage(ConfirmDialog d) {
+        return (PagedMessage) d.getMessageLabel().getParent();
+    }
+
+    @Test
+    public void onlyFirstPageIsRendered() throws Exception {
+        List<String> lines = lines(5000);
+        ConfirmDialog d = ConfirmDialog.showLines(main, "Delete", lines, null,
+                null, new DialogTestSupport.Counter());
+        PagedMessage paged = getPagedMessage(d);
+
+        assertEquals(PagedMessage.DEFAULT_PAGE_SIZE,
+                paged.getShownLineCount());
+        assertTrue(paged.hasMore());
+        String html = (String) d.getMessageLabel().getValue();
+        assertTrue(html.startsWith("Item &lt;0&gt; will be deleted<br />"));
+        assertFalse(html.contains("Item &lt;200&gt;"));
+
+        int pagedSize = DialogTestSupport.paintSize(app, d);
+        ConfirmDialog full = ConfirmDialog.getFactory().create(null,
+                PagedMessage.join(lines), null, null);
+        main.addWindow(full);
+        int fullSize = DialogTestSupport.paintSize(app, full);
+        assertTrue("paged " + pagedSize + " bytes, single label " + fullSize
+                + " bytes", pagedSize * 10 < fullSize);
+    }
+
+    @Test
+    public void showMoreAddsPages() {
+        ConfirmDialog d = ConfirmDialog.showLines(main, null, lines(450),
+                null, null, new DialogTestSupport.Counter());
+        PagedMessage paged = getPagedMessage(d);
+
+        DialogTestSupport.click(paged.getShowMoreButton());
+        assertEquals(400, paged.getShownLineCount());
+        assertEquals(3, paged.getComponentCount());
+        assertTrue(paged.hasMore());
+
+        assertEquals(50, paged.showMore());
+        assertFalse(paged.hasMore());
+        assertNull(paged.getShowMoreButton().getParent());
+        assertEquals(3, paged.getComponentCount());
+        Label last = (Label) paged.getComponent(2);
+        assertTrue(((String) last.getValue()).endsWith("Item &lt;449&gt; will be deleted"));
+    }
+
+    @Test
+    public void pagesUseContentModeOfDialog() {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            lines.add("<b>Item " + i + "</b><script>alert(" + i
+                    + ")</script>");
+        }
+        ConfirmDialog d = new DefaultConfirmDialogFactory().createPaged(app,
+                null, lines, 10, null, null);
+        d.setContentMode(ConfirmDialog.CONTENT_HTML_SANITIZED);
+        d.show(main, null, true);
+        PagedMessage paged = getPagedMessage(d);
+        paged.showMore();
+        Label second = (Label) paged.getComponent(1);
+        assertEquals(Label.CONTENT_RAW, second.getContentMode());
+        String html = (String) second.getValue();
+        assertTrue(html.startsWith("<b>Item 10</b>"));
+        assertFalse(html.contains("script"));
+
+        d.setContentMode(ConfirmDialog.CONTENT_HTML);
+        assertTrue(((String) second.getValue()).contains("<script>"));
+        d.setContentMode(ConfirmDialog.CONTENT_TEXT);
+        assertEquals(Label.CONTENT_TEXT, second.getContentMode());
+        assertTrue(((String) second.getValue()).startsWith("<b>Item 10</b>"));
+    }
+
+    @Test
+    public void linesAreReadLazily() {
+        final int[] read = new int[1];
+        Iterable<String> source = new Iterable<String>() {
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    public boolean hasNext() {
+                        return read[0] < 100000;
+                    }
+
+                    public String next() {
+                        return "Line " + read[0]++;
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+        PagedMessage paged = new PagedMessage(source, 10);
+        assertEquals(10, read[0]);
+        paged.showMore();
+        assertEquals(20, read[0]);
+    }
+
+    @Test
+    public void sizedByFirstPage() {
+        ConfirmDialog small = ConfirmDialog.showLines(main, null, lines(3),
+                null, null, new DialogTestSupport.Counter());
+        assertFalse(getPagedMessage(small).hasMore());
+        assertEquals(1, getPagedMessage(small).getComponentCount());
+        ConfirmDialog large = ConfirmDialog.showLines(main, null,
+                lines(100000), null, null, new DialogTestSupport.Counter());
+        assertTrue(small.getHeight() < large.getHeight());
+    }
+}
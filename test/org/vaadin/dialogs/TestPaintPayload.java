@@ -0,0 +1,61 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.terminal.PaintException;
+import com.vaadin.ui.Window;
+
+/**
+ * Records the UIDL paint payload of the default and the lightweight dialog.
+ */
+@SuppressWarnings("serial")
+public class TestPaintPayload {
+
+    private Application app;
+    private Window main;
+
+    @Before
+    public void setUp() {
+        app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+    }
+
+    private int paintSize(ConfirmDialog.Factory factory, String message)
+            throws PaintException {
+        ConfirmDialog d = factory.create(null, message, null, null);
+        main.addWindow(d);
+        try {
+            return DialogTestSupport.paintSize(app, d);
+        } finally {
+            main.removeWindow(d);
+        }
+    }
+
+    private void assertSmaller(String name, String message)
+            throws PaintException {
+        int standard = paintSize(new DefaultConfirmDialogFactory(), message);
+        int lightweight = paintSize(new LightweightConfirmDialogFactory(),
+                message);
+        assertTrue(name + ": default " + standard + " bytes, lightweight "
+                + lightweight + " bytes", lightweight < standard);
+    }
+
+    @Test
+    public void shortMessage() throws PaintException {
+        assertSmaller("short", "Are You sure?");
+    }
+
+    @Test
+    public void longMessage() throws PaintException {
+        StringBuilder sb = new StringBuilder("Delete these records?\n");
+        for (int i = 0; i < 100; i++) {
+            sb.append("Record #").append(i).append('\n');
+        }
+        assertSmaller("long", sb.toString());
+    }
+}
@@ -0,0 +1,120 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Window;
+
+/**
+ * Tests for reusing closed dialogs.
+ */
+@SuppressWarnings("serial")
+public class TestPooledConfirmDialogFactory {
+
+    private PooledConfirmDialogFactory factory;
+    private Application app;
+    private Window main;
+
+    @Before
+    public void setUp() {
+        factory = new PooledConfirmDialogFactory(1);
+        ConfirmDialog.setFactory(factory);
+        app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+    }
+
+    @After
+    public void tearDown() {
+        ConfirmDialog.setFactory(null);
+    }
+
+    private static final ConfirmDialog.Listener NOOP = new ConfirmDialog.Listener() {
+        public void onClose(ConfirmDialog dialog) {
+        }
+    };
+
+    @Test
+    public void closedDialogIsReused() {
+        ConfirmDialog first = ConfirmDialog.show(main, "First", "Delete?",
+                "Delete", "Keep", NOOP);
+        first.setContentMode(ConfirmDialog.CONTENT_HTML);
+        DialogTestSupport.click(first.getOkButton());
+        assertEquals(1, factory.getPooledCount(app));
+
+        // The defaults of the application locale
+        app.setLocale(new Locale("fi"));
+        ConfirmDialog second = ConfirmDialog.show(main, "Second message",
+                NOOP);
+        assertSame(first, second);
+        assertEquals(0, factory.getPooledCount(app));
+        assertEquals("Vahvista", second.getCaption());
+        assertEquals("Second message", second.getMessage());
+        assertEquals(ConfirmDialog.CONTENT_DEFAULT, second.getContentMode());
+        assertEquals("OK", second.getOkButton().getCaption());
+        assertEquals("Peruuta", second.getCancelButton().getCaption());
+        assertFalse(second.isConfirmed());
+        assertTrue(second.isEnabled());
+        assertSame(NOOP, second.getListener());
+        assertSame(main, second.getParent());
+    }
+
+    @Test
+    public void listenerSeesDecisionBeforePooling() {
+        final boolean[] confirmed = new boolean[1];
+        ConfirmDialog d = ConfirmDialog.show(main, "Delete?",
+                new ConfirmDialog.Listener() {
+                    public void onClose(ConfirmDialog dialog) {
+                        confirmed[0] = dialog.isConfirmed();
+                    }
+                });
+        DialogTestSupport.click(d.getOkButton());
+        assertTrue(confirmed[0]);
+        assertNull(d.getListener());
+
+        // Pooled, but still closed for the caller holding it
+        assertEquals(1, factory.getPooledCount(app));
+        assertSame(ConfirmDialog.State.CLOSED, d.getState());
+        assertFalse(d.isPending());
+        assertTrue(d.isConfirmed());
+        assertSame(ConfirmDialog.Outcome.CONFIRMED, d.getOutcome());
+    }
+
+    @Test
+    public void poolIsBounded() {
+        ConfirmDialog a = ConfirmDialog.show(main, "A", NOOP);
+        ConfirmDialog b = ConfirmDialog.show(main, "B", NOOP);
+        assertNotSame(a, b);
+        DialogTestSupport.click(a.getCancelButton());
+        main.removeWindow(b);
+        assertEquals(1, factory.getPooledCount(app));
+    }
+
+    @Test
+    public void poolIsPerApplication() {
+        ConfirmDialog d = ConfirmDialog.show(main, "A", NOOP);
+        DialogTestSupport.click(d.getCancelButton());
+
+        Application other = new Application() {
+            @Override
+            public void init() {
+            }
+        };
+        Window otherMain = new Window();
+        other.setMainWindow(otherMain);
+        assertNotSame(d, ConfirmDialog.show(otherMain, "B", NOOP));
+        assertEquals(1, factory.getPooledCount(app));
+    }
+}
@@ -0,0 +1,200 @@
+package org.vaadin.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.Application;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Window;
+
+/**
+ * Serialized size and round trip of the compact dialog form.
+ */
+@SuppressWarnings("serial")
+public class TestSerialization {
+
+    /** Listener referring back to its dialog like typical UI code. */
+    static class DialogHolder implements ConfirmDialog.Listener {
+        ConfirmDialog dialog;
+        boolean closed;
+
+        public void onClose(ConfirmDialog dialog) {
+            closed = dialog == this.dialog;
+        }
+    }
+
+    private Application app;
+    private Window main;
+
+    @Before
+    public void setUp() {
+        app = new DialogTestSupport.TestApplication();
+        main = new Window();
+        app.setMainWindow(main);
+    }
+
+    static byte[] serialize(Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(o);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] bytes) throws IOException,
+            ClassNotFoundException {
+        return new ObjectInputStream(new ByteArrayInputStream(bytes))
+                .readObject();
+    }
+
+    private ConfirmDialog show(boolean compact) {
+        ConfirmDialog d = create(compact);
+        d.show(main, new DialogTestSupport.Counter(), true);
+        return d;
+    }
+
+    private ConfirmDialog create(boolean compact) {
+        ConfirmDialog d = ConfirmDialog.getFactory().create("Delete",
+                "Delete the record?", "Yes", "No");
+        if (!compact) {
+            d.setRebuildFactory(null);
+        }
+        return d;
+    }
+
+    @Test
+    public void compactFormIsSmaller() throws IOException {
+        // Measured in a session where the Vaadin classes are already known
+        ConfirmDialog d = show(false);
+        int fullSize = serialize(app).length;
+        main.removeWindow(d);
+        show(true);
+        int compactSize = serialize(app).length;
+
+        assertTrue(fullSize + " bytes full, " + compactSize
+                + " bytes compact", compactSize < fullSize);
+    }
+
+    @Test
+    public void dialogIsRebuilt() throws Exception {
+        ConfirmDialog original = show(true);
+        original.setContentMode(ConfirmDialog.CONTENT_HTML);
+
+        Application copy = (Application) deserialize(serialize(app));
+        Window copyMain = copy.getMainWindow();
+        assertEquals(1, copyMain.getChildWindows().size());
+        ConfirmDialog d = (ConfirmDialog) copyMain.getChildWindows()
+                .iterator().next();
+
+        assertNotSame(original, d);
+        assertSame(copyMain, d.getParent());
+        assertEquals("Delete", d.getCaption());
+        assertEquals("Delete the record?", d.getMessage());
+        assertEquals(ConfirmDialog.CONTENT_HTML, d.getContentMode());
+        assertEquals("Yes", d.getOkButton().getCaption());
+        assertEquals("No", d.getCancelButton().getCaption());
+        assertEquals(ConfirmDialog.State.SHOWN, d.getState());
+        assertTrue(d.isModal());
+
+        DialogTestSupport.click(d.getOkButton());
+        assertTrue(copyMain.getChildWindows().isEmpty());
+        assertEquals(1,
+                ((DialogTestSupport.Counter) d.getListener()).confirmed);
+    }
+
+    @Test
+    public void clientButtonsDecideRestoredDialog() throws Exception {
+        clickRestoredButton(ConfirmDialog.getFactory().create("Delete",
+                "Delete the record?", "Yes", "No"));
+        clickRestoredButton(new LightweightConfirmDialogFactory().create(
+                "Delete", "Delete the record?", "Yes", "No"));
+    }
+
+    /**
+     * Click the button as the client does after a failover, through the
+     * instance restored with the ids of the session.
+     */
+    private void clickRestoredButton(ConfirmDialog original) throws Exception {
+        original.show(main, new DialogTestSupport.Counter(), true);
+        Object[] session = (Object[]) deserialize(serialize(new Object[] {
+                app, original.getOkButton() }));
+        Button ok = (Button) session[1];
+        ConfirmDialog d = (ConfirmDialog) ((Application) session[0])
+                .getMainWindow().getChildWindows().iterator().next();
+        main.removeWindow(original);
+
+        assertSame(ok, d.getOkButton());
+        DialogTestSupport.click(ok);
+        assertEquals(ConfirmDialog.Outcome.CONFIRMED, d.getOutcome());
+        assertEquals(1,
+                ((DialogTestSupport.Counter) d.getListener()).confirmed);
+    }
+
+    @Test
+    public void fullFormIsSizedAfterRestore() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            sb.append("<a href=\"https://vaadin.com/\">").append(i)
+                    .append("</a>");
+        }
+        ConfirmDialog original = ConfirmDialog.getFactory().create(null,
+                sb.toString(), null, null);
+        original.setRebuildFactory(null);
+        original.show(main, new DialogTestSupport.Counter(), true);
+        float escaped = original.getWidth();
+
+        ConfirmDialog d = deserializeDialog();
+        d.setContentMode(ConfirmDialog.CONTENT_HTML);
+        assertTrue(d.getWidth() < escaped);
+    }
+
+    private ConfirmDialog deserializeDialog() throws Exception {
+        Application copy = (Application) deserialize(serialize(app));
+        return (ConfirmDialog) copy.getMainWindow().getChildWindows()
+                .iterator().next();
+    }
+
+    @Test
+    public void listenerReferringToDialog() throws Exception {
+        DialogHolder holder = new DialogHolder();
+        holder.dialog = ConfirmDialog.show(main, "Delete?", holder);
+
+        ConfirmDialog d = deserializeDialog();
+        holder = (DialogHolder) d.getListener();
+        assertSame(d, holder.dialog);
+        assertEquals("Delete?", d.getMessage());
+
+        DialogTestSupport.click(d.getCancelButton());
+        assertTrue(holder.closed);
+    }
+
+    @Test
+    public void templatesAreKept() throws Exception {
+        MessageTemplate template = MessageTemplate.compile("Delete {0}?");
+        ConfirmDialog.show(main, template, new DialogTestSupport.Counter(),
+                "<record>");
+        ConfirmDialog d = deserializeDialog();
+        assertEquals(template, d.getMessageTemplate());
+        assertEquals("Delete &lt;record&gt;?", d.getMessageLabel().getValue());
+        main.removeWindow(main.getChildWindows().iterator().next());
+
+        DialogTemplate shared = ((DefaultConfirmDialogFactory) ConfirmDialog
+                .getFactory()).createTemplate("Delete", "Delete all?", null,
+                null);
+        ConfirmDialog.show(main, shared, new DialogTestSupport.Counter());
+        d = deserializeDialog();
+        assertEquals(shared.getMessage(), d.getDialogTemplate().getMessage());
+        assertEquals(shared.getWidth(), d.getWidth(), 0f);
+    }
+}
@@ -1,10 +1,15 @@
 package org.vaadin.dialogs.test;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.vaadin.dialogs.ApplicationExecutor;
 import org.vaadin.dialogs.ConfirmDialog;
 
 import com.vaadin.Application;
@@ -12,6 +17,7 @@ import com.vaadin.terminal.gwt.server.AbstractApplicationServlet;
 import com.vaadin.ui.Button;
 import com.vaadin.ui.Button.ClickEvent;
 import com.vaadin.ui.Label;
+import com.vaadin.ui.ProgressIndicator;
 import com.vaadin.ui.VerticalLayout;
 import com.vaadin.ui.Window;
 
@@ -20,12 +26,28 @@ public class ConfirmTestApplication extends Application {
 
 	public static final String MESSAGE_1 = "This is the question?";
 
+	private static final Executor ACTION_EXECUTOR = Executors
+			.newFixedThreadPool(4);
+
 	public static void main(String[] args) throws Exception {
 		startInEmbeddedJetty();
 	}
 
 	public static Server startInEmbeddedJetty() throws Exception {
-		Server server = new Server(8888);
+		return startInEmbeddedJetty(8888);
+	}
+
+	/**
+	 * Start the application in an embedded Jetty.
+	 * 
+	 * @param port
+	 *            Port to listen or 0 for a random free port. The port in use
+	 *            is available from getConnectors()[0].getLocalPort().
+	 * @return The started server
+	 * @throws Exception
+	 */
+	public static Server startInEmbeddedJetty(int port) throws Exception {
+		Server server = new Server(port);
 		ServletContextHandler handler = new ServletContextHandler(
 				ServletContextHandler.SESSIONS);
 		handler.addServlet(Servlet.class, "/*");
@@ -60,6 +82,7 @@ public class ConfirmTestApplication extends Application {
 		mainWindow.addComponent(label);
 
 		addBasicExample();
+		addAsyncExample();
 		
 		setMainWindow(mainWindow);
 	}
@@ -88,6 +111,42 @@ public class ConfirmTestApplication extends Application {
 		mainWindow.addComponent(button);
 	}
 	
+	private void addAsyncExample() {
+		final ProgressIndicator progress = new ProgressIndicator();
+		progress.setIndeterminate(true);
+		progress.setPollingInterval(500);
+		progress.setVisible(false);
+
+		Button button = new Button("Async");
+		button.setDebugId("async");
+		button.addListener(new Button.ClickListener() {
+			public void buttonClick(ClickEvent event) {
+				progress.setVisible(true);
+
+				// Long running action is run outside the request thread
+				ConfirmDialog.showAsync(getMainWindow(), MESSAGE_1,
+						new Runnable() {
+							public void run() {
+								try {
+									Thread.sleep(3000);
+								} catch (InterruptedException e) {
+									Thread.currentThread().interrupt();
+								}
+							}
+						}, ACTION_EXECUTOR).thenAcceptAsync(
+						new Consumer<Boolean>() {
+							public void accept(Boolean confirmed) {
+								// Application is locked, update the UI
+								progress.setVisible(false);
+								feedback(confirmed);
+							}
+						}, new ApplicationExecutor(ConfirmTestApplication.this));
+			}
+		});
+		mainWindow.addComponent(button);
+		mainWindow.addComponent(progress);
+	}
+
 	private void feedback(boolean confirmed) {
 		getMainWindow().showNotification("Confirmed:" + confirmed);
 	}
@@ -0,0 +1,352 @@
+package org.vaadin.dialogs.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jetty.server.Server;
+
+/**
+ * Browserless load test for the confirmation dialogs.
+ *
+ * Starts {@link ConfirmTestApplication} in an embedded Jetty on a random port
+ * and simulates many concurrent sessions with a plain HTTP client. Each
+ * session loads the application and then repeats a cycle of opening the
+ * basic example dialog, which paints it, and clicking its OK button. Reports
+ * the request rate, request latency percentiles and the heap used per
+ * session.
+ *
+ * Run with:
+ *
+ * <pre>
+ * java org.vaadin.dialogs.test.LoadTestHarness [sessions] [threads] [cycles]
+ * </pre>
+ */
+public class LoadTestHarness {
+
+	private static final String BURST_SEPARATOR = "\u001d";
+	private static final String FIELD_SEPARATOR = "\u001f";
+
+	private static final Pattern SECURITY_KEY = Pattern
+			.compile("\"Vaadin-Security-Key\":\"([^\"]+)\"");
+	private static final Pattern OK_BUTTON = Pattern
+			.compile("\\{\"id\": \"(PID\\d+)\"[^{}]*\"caption\": \"Ok\"");
+
+	public static void main(String[] args) throws Exception {
+		int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		int cycles = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		// Keep a connection per client thread alive
+		System.setProperty("http.maxConnections", String.valueOf(threads));
+
+		Server server = ConfirmTestApplication.startInEmbeddedJetty(0);
+		try {
+			int port = server.getConnectors()[0].getLocalPort();
+			Report report = run("http://localhost:" + port, sessions,
+					threads, cycles);
+			System.out.println(report);
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Run the load test against a running application.
+	 *
+	 * All sessions are opened first and the heap is measured while they are
+	 * alive. Then the dialog cycles of all sessions are run concurrently.
+	 *
+	 * @param baseUrl
+	 *            URL of the application.
+	 * @param sessions
+	 *            Number of simulated sessions.
+	 * @param threads
+	 *            Number of concurrent client threads.
+	 * @param cycles
+	 *            Dialog open and confirm cycles per session.
+	 * @return
+	 * @throws Exception
+	 */
+	public static Report run(final String baseUrl, final int sessions,
+			final int threads, final int cycles) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			final Report report = new Report(sessions, threads, cycles);
+			long heapBefore = usedHeap();
+
+			List<SimulatedSession> clients = new ArrayList<SimulatedSession>();
+			List<Callable<long[]>> opens = new ArrayList<Callable<long[]>>();
+			for (int i = 0; i < sessions; i++) {
+				final SimulatedSession s = new SimulatedSession(baseUrl,
+						report);
+				clients.add(s);
+				opens.add(new Callable<long[]>() {
+					public long[] call() throws Exception {
+						s.open();
+						return s.takeLatencies();
+					}
+				});
+			}
+			collect(pool.invokeAll(opens), null);
+			report.heapPerSession = (usedHeap() - heapBefore) / sessions;
+
+			List<Callable<long[]>> work = new ArrayList<Callable<long[]>>();
+			for (final SimulatedSession s : clients) {
+				work.add(new Callable<long[]>() {
+					public long[] call() throws Exception {
+						for (int i = 0; i < cycles; i++) {
+							s.confirmCycle();
+						}
+						return s.takeLatencies();
+					}
+				});
+			}
+			long start = System.nanoTime();
+			List<long[]> latencies = new ArrayList<long[]>();
+			collect(pool.invokeAll(work), latencies);
+			report.elapsedNanos = System.nanoTime() - start;
+			report.setLatencies(latencies);
+			return report;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static void collect(List<Future<long[]>> futures,
+			List<long[]> results) throws InterruptedException {
+		for (Future<long[]> f : futures) {
+			try {
+				long[] l = f.get();
+				if (results != null) {
+					results.add(l);
+				}
+			} catch (java.util.concurrent.ExecutionException e) {
+				// Counted as an error by the session
+			}
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+				.getUsed();
+	}
+
+	/**
+	 * A browser session talking the UIDL protocol.
+	 */
+	static class SimulatedSession {
+
+		private final String baseUrl;
+		private final Report report;
+		private String cookie;
+		private String securityKey = "";
+		private long[] latencies = new long[16];
+		private int count;
+
+		SimulatedSession(String baseUrl, Report report) {
+			this.baseUrl = baseUrl;
+			this.report = report;
+		}
+
+		/**
+		 * Load the application page and paint the main window.
+		 */
+		void open() throws IOException {
+			request("GET", "/", null);
+			String uidl = request("POST", "/UIDL/?repaintAll=1&sh=768&sw=1024",
+					"init");
+			Matcher m = SECURITY_KEY.matcher(uidl);
+			if (m.find()) {
+				securityKey = m.group(1) + BURST_SEPARATOR;
+			}
+		}
+
+		/**
+		 * Open the dialog and click its OK button.
+		 */
+		void confirmCycle() throws IOException {
+			String dialog = click("PID_Sbasic");
+			Matcher m = OK_BUTTON.matcher(dialog);
+			if (!m.find()) {
+				throw error("Dialog was not painted");
+			}
+			String result = click(m.group(1));
+			if (!result.contains("Confirmed:true")) {
+				throw error("Dialog was not confirmed");
+			}
+		}
+
+		private String click(String pid) throws IOException {
+			return request("POST", "/UIDL/", securityKey + "true"
+					+ FIELD_SEPARATOR + pid + FIELD_SEPARATOR + "state"
+					+ FIELD_SEPARATOR + "b");
+		}
+
+		private IOException error(String message) {
+			report.errors.incrementAndGet();
+			return new IOException(message);
+		}
+
+		private String request(String method, String path, String body)
+				throws IOException {
+			long start = System.nanoTime();
+			HttpURLConnection c = (HttpURLConnection) new URL(baseUrl + path)
+					.openConnection();
+			c.setRequestMethod(method);
+			if (cookie != null) {
+				c.setRequestProperty("Cookie", cookie);
+			}
+			if (body != null) {
+				c.setDoOutput(true);
+				c.setRequestProperty("Content-Type",
+						"text/plain;charset=utf-8");
+				OutputStream out = c.getOutputStream();
+				out.write(body.getBytes("UTF-8"));
+				out.close();
+			}
+			int status = c.getResponseCode();
+			String setCookie = c.getHeaderField("Set-Cookie");
+			if (setCookie != null) {
+				cookie = setCookie.split(";", 2)[0];
+			}
+			if (status != HttpURLConnection.HTTP_OK) {
+				c.getErrorStream().close();
+				throw error("HTTP " + status + " for " + path);
+			}
+			String response = read(c.getInputStream());
+			record(System.nanoTime() - start);
+			if (response.contains("\"appError\"")) {
+				throw error("Application error for " + path);
+			}
+			return response;
+		}
+
+		private static String read(InputStream in) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			int n;
+			while ((n = in.read(buf)) > 0) {
+				bytes.write(buf, 0, n);
+			}
+			in.close();
+			return bytes.toString("UTF-8");
+		}
+
+		private void record(long nanos) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = nanos;
+		}
+
+		long[] takeLatencies() {
+			long[] l = Arrays.copyOf(latencies, count);
+			count = 0;
+			return l;
+		}
+	}
+
+	/**
+	 * Results of a load test run.
+	 */
+	public static class Report {
+
+		private final int sessions;
+		private final int threads;
+		private final int cycles;
+		private final AtomicInteger errors = new AtomicInteger();
+		private long heapPerSession;
+		private long elapsedNanos;
+		private long[] latencies = new long[0];
+
+		Report(int sessions, int threads, int cycles) {
+			this.sessions = sessions;
+			this.threads = threads;
+			this.cycles = cycles;
+		}
+
+		void setLatencies(List<long[]> perSession) {
+			int n = 0;
+			for (long[] l : perSession) {
+				n += l.length;
+			}
+			latencies = new long[n];
+			int i = 0;
+			for (long[] l : perSession) {
+				System.arraycopy(l, 0, latencies, i, l.length);
+				i += l.length;
+			}
+			Arrays.sort(latencies);
+		}
+
+		public int getRequestCount() {
+			return latencies.length;
+		}
+
+		public int getErrorCount() {
+			return errors.get();
+		}
+
+		public double getRequestsPerSecond() {
+			return elapsedNanos == 0 ? 0d : latencies.length * 1e9
+					/ elapsedNanos;
+		}
+
+		/**
+		 * Request latency percentile of the dialog cycles.
+		 *
+		 * @param percentile
+		 *            Percentile between 0 and 100
+		 * @return Latency in milliseconds
+		 */
+		public double getLatencyMillis(double percentile) {
+			if (latencies.length == 0) {
+				return 0d;
+			}
+			int i = (int) Math.ceil(latencies.length * percentile / 100d) - 1;
+			return latencies[Math.max(0, Math.min(i, latencies.length - 1))] / 1e6;
+		}
+
+		/**
+		 * Heap retained by an open session, including the Vaadin application
+		 * and the servlet session.
+		 *
+		 * @return Bytes per session
+		 */
+		public long getHeapPerSession() {
+			return heapPerSession;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Sessions: %d, client threads: %d, "
+					+ "cycles per session: %d%n"
+					+ "Requests: %d, errors: %d, %.1f requests/s%n"
+					+ "Latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n"
+					+ "Heap per session: %.1f KB", sessions, threads, cycles,
+					getRequestCount(), getErrorCount(),
+					getRequestsPerSecond(), getLatencyMillis(50),
+					getLatencyMillis(90), getLatencyMillis(99),
+					getLatencyMillis(100), heapPerSession / 1024d);
+		}
+	}
+}